@@ -0,0 +1,36 @@
+package com.acidblue.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so every result reports its
+ * allocation rate (<code>gc.alloc.rate.norm</code>, in bytes per operation)
+ * next to its time.
+ * <p/>
+ * Takes the usual JMH command line options, for example:
+ * <pre>
+ *      java -jar target/benchmarks.jar ComparatorBenchmark -p properties=8
+ *      java -jar target/benchmarks.jar SortBenchmark -p size=100,10000 -rf json
+ * </pre>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+
+    public static void main(final String[] args) throws CommandLineOptionException, RunnerException {
+        final Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,111 @@
+package com.acidblue.benchmarks;
+
+import com.acidblue.beans.ComparatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorts an array of beans with the comparators of the library, against a
+ * hand-written {@link Comparator#comparing} chain over the same properties.
+ * <p/>
+ * Every benchmark sorts a fresh copy of the same array, so {@link #copy()}
+ * gives the part of each score that is not sorting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComparatorBenchmark {
+
+    /**
+     * The number of properties compared.
+     */
+    @Param({"1", "2", "4", "8"})
+    public int properties;
+
+    /**
+     * The number of beans sorted.
+     */
+    @Param({"10000"})
+    public int size;
+
+    private PersonBean[] beans;
+
+    private Comparator<Object> beanProperty;
+
+    private Comparator<Object> generated;
+
+    private Comparator<Object> sortSpec;
+
+    private Comparator<PersonBean> baseline;
+
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        final String[] names = People.properties(properties);
+
+        beans = People.beans(size, 42);
+        beanProperty = names.length == 1
+                ? ComparatorFactory.create(names[0])
+                : ComparatorFactory.create(names[0], names[1], Arrays.copyOfRange(names, 2, names.length));
+        generated = (Comparator<Object>) (Comparator<?>) ComparatorFactory.create(PersonBean.class, names[0],
+                Arrays.copyOfRange(names, 1, names.length));
+        sortSpec = (Comparator<Object>) (Comparator<?>) ComparatorFactory.parse(PersonBean.class,
+                String.join(", ", names));
+        baseline = People.beanComparator(properties);
+    }
+
+
+    @Benchmark
+    public Object[] copy() {
+        return beans.clone();
+    }
+
+
+    @Benchmark
+    public Object[] baseline() {
+        final PersonBean[] copy = beans.clone();
+        Arrays.sort(copy, baseline);
+        return copy;
+    }
+
+
+    @Benchmark
+    public Object[] beanPropertyComparator() {
+        final Object[] copy = beans.clone();
+        Arrays.sort(copy, beanProperty);
+        return copy;
+    }
+
+
+    @Benchmark
+    public Object[] generatedComparator() {
+        final Object[] copy = beans.clone();
+        Arrays.sort(copy, generated);
+        return copy;
+    }
+
+
+    @Benchmark
+    public Object[] sortSpecComparator() {
+        final Object[] copy = beans.clone();
+        Arrays.sort(copy, sortSpec);
+        return copy;
+    }
+}
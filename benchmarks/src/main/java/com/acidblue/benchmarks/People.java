@@ -0,0 +1,206 @@
+package com.acidblue.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates the data sets and the hand-written baseline comparators of the benchmarks.
+ * <p/>
+ * Values are drawn from small domains, so that many beans share their most
+ * significant properties and comparisons on several properties really do
+ * reach the later ones.
+ */
+final class People {
+
+    /**
+     * The sortable properties, most significant first.
+     */
+    static final String[] PROPERTIES = {
+            "lastName", "firstName", "age", "city", "zip", "salary", "score", "id"
+    };
+
+    private static final String[] LAST_NAMES = {
+            "Adams", "Brown", "Bush", "Carter", "Clinton", "Franklin", "Grant", "Harrison", "Jackson", "Jefferson",
+            "Johnson", "Kennedy", "Lincoln", "Madison", "Monroe", "Nixon", "Obama", "Polk", "Reagan", "Roosevelt",
+            "Taft", "Taylor", "Truman", "Tyler", "Washington", "Wilson"
+    };
+
+    private static final String[] FIRST_NAMES = {
+            "Abraham", "Andrew", "Barack", "Benjamin", "Bill", "Calvin", "Dwight", "Franklin", "George", "Gerald",
+            "Harry", "James", "Jimmy", "John", "Lyndon", "Richard", "Ronald", "Theodore", "Thomas", "Woodrow"
+    };
+
+    private static final String[] CITIES = {
+            "Austin", "Boston", "Chicago", "Denver", "Houston", "Miami", "Philadelphia", "Phoenix", "Portland",
+            "Seattle"
+    };
+
+
+    /**
+     * Utility class; cannot be instantiated.
+     */
+    private People() {
+    }
+
+
+    /**
+     * Generates beans.
+     *
+     * @param size the number of beans
+     * @param seed the random seed
+     * @return the beans
+     */
+    static PersonBean[] beans(final int size, final long seed) {
+        final SplittableRandom random = new SplittableRandom(seed);
+        final PersonBean[] beans = new PersonBean[size];
+
+        for (int i = 0; i < size; i++) {
+            beans[i] = new PersonBean(pick(random, LAST_NAMES), pick(random, FIRST_NAMES), 18 + random.nextInt(8),
+                    pick(random, CITIES), random.nextInt(4), random.nextInt(3) * 1000L, random.nextInt(2) / 2.0,
+                    random.nextLong());
+        }
+
+        return beans;
+    }
+
+
+    /**
+     * Generates records holding the same values as {@link #beans(int, long)} with the same arguments.
+     *
+     * @param size the number of records
+     * @param seed the random seed
+     * @return the records
+     */
+    static PersonRecord[] records(final int size, final long seed) {
+        final PersonBean[] beans = beans(size, seed);
+        final PersonRecord[] records = new PersonRecord[size];
+
+        for (int i = 0; i < size; i++) {
+            final PersonBean b = beans[i];
+            records[i] = new PersonRecord(b.getLastName(), b.getFirstName(), b.getAge(), b.getCity(), b.getZip(),
+                    b.getSalary(), b.getScore(), b.getId());
+        }
+
+        return records;
+    }
+
+
+    /**
+     * Returns the hand-written comparator of the first <em>count</em> properties of {@link PersonBean}.
+     *
+     * @param count the number of properties, 1 to 8
+     * @return the comparator
+     */
+    static Comparator<PersonBean> beanComparator(final int count) {
+        final List<Comparator<PersonBean>> keys = List.of(
+                Comparator.comparing(PersonBean::getLastName),
+                Comparator.comparing(PersonBean::getFirstName),
+                Comparator.comparingInt(PersonBean::getAge),
+                Comparator.comparing(PersonBean::getCity),
+                Comparator.comparingInt(PersonBean::getZip),
+                Comparator.comparingLong(PersonBean::getSalary),
+                Comparator.comparingDouble(PersonBean::getScore),
+                Comparator.comparingLong(PersonBean::getId));
+
+        return chain(keys, count);
+    }
+
+
+    /**
+     * Returns the hand-written comparator of the first <em>count</em> properties of {@link PersonRecord}.
+     *
+     * @param count the number of properties, 1 to 8
+     * @return the comparator
+     */
+    static Comparator<PersonRecord> recordComparator(final int count) {
+        final List<Comparator<PersonRecord>> keys = List.of(
+                Comparator.comparing(PersonRecord::lastName),
+                Comparator.comparing(PersonRecord::firstName),
+                Comparator.comparingInt(PersonRecord::age),
+                Comparator.comparing(PersonRecord::city),
+                Comparator.comparingInt(PersonRecord::zip),
+                Comparator.comparingLong(PersonRecord::salary),
+                Comparator.comparingDouble(PersonRecord::score),
+                Comparator.comparingLong(PersonRecord::id));
+
+        return chain(keys, count);
+    }
+
+
+    /**
+     * Returns the first <em>count</em> property names.
+     *
+     * @param count the number of properties, 1 to 8
+     * @return the property names
+     */
+    static String[] properties(final int count) {
+        return Arrays.copyOf(PROPERTIES, count);
+    }
+
+
+    /**
+     * Arranges <em>elements</em> in place.
+     *
+     * @param elements   the elements
+     * @param order      <code>random</code>, <code>sorted</code> or <code>reversed</code>
+     * @param comparator the order of sorted elements
+     * @param <E>        the element type
+     */
+    static <E> void arrange(final E[] elements, final String order, final Comparator<? super E> comparator) {
+        switch (order) {
+            case "random":
+                break;
+            case "sorted":
+                Arrays.sort(elements, comparator);
+                break;
+            case "reversed":
+                Arrays.sort(elements, comparator.reversed());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown order: " + order);
+        }
+    }
+
+
+    /**
+     * Creates a new list holding <em>elements</em>.
+     *
+     * @param type     <code>ArrayList</code> or <code>LinkedList</code>
+     * @param elements the elements
+     * @param <E>      the element type
+     * @return the list
+     */
+    static <E> List<E> list(final String type, final E[] elements) {
+        final Collection<E> view = Arrays.asList(elements);
+
+        switch (type) {
+            case "ArrayList":
+                return new ArrayList<>(view);
+            case "LinkedList":
+                return new LinkedList<>(view);
+            default:
+                throw new IllegalArgumentException("Unknown list type: " + type);
+        }
+    }
+
+
+    private static <T> Comparator<T> chain(final List<Comparator<T>> keys, final int count) {
+        Comparator<T> comparator = keys.get(0);
+
+        for (int i = 1; i < count; i++) {
+            comparator = comparator.thenComparing(keys.get(i));
+        }
+
+        return comparator;
+    }
+
+
+    private static String pick(final SplittableRandom random, final String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,69 @@
+package com.acidblue.benchmarks;
+
+/**
+ * A JavaBean with eight sortable properties, most significant first.
+ */
+public class PersonBean {
+
+    private final String lastName;
+    private final String firstName;
+    private final int age;
+    private final String city;
+    private final int zip;
+    private final long salary;
+    private final double score;
+    private final long id;
+
+
+    public PersonBean(final String lastName, final String firstName, final int age, final String city,
+                      final int zip, final long salary, final double score, final long id) {
+        this.lastName = lastName;
+        this.firstName = firstName;
+        this.age = age;
+        this.city = city;
+        this.zip = zip;
+        this.salary = salary;
+        this.score = score;
+        this.id = id;
+    }
+
+
+    public String getLastName() {
+        return lastName;
+    }
+
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+
+    public int getAge() {
+        return age;
+    }
+
+
+    public String getCity() {
+        return city;
+    }
+
+
+    public int getZip() {
+        return zip;
+    }
+
+
+    public long getSalary() {
+        return salary;
+    }
+
+
+    public double getScore() {
+        return score;
+    }
+
+
+    public long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,8 @@
+package com.acidblue.benchmarks;
+
+/**
+ * The record counterpart of {@link PersonBean}.
+ */
+public record PersonRecord(String lastName, String firstName, int age, String city,
+                           int zip, long salary, double score, long id) {
+}
@@ -0,0 +1,110 @@
+package com.acidblue.benchmarks;
+
+import com.acidblue.beans.SortUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorts lists of beans or records by last name and first name with
+ * {@link SortUtil}, against {@link List#sort} with a hand-written
+ * {@link Comparator#comparing} chain.
+ * <p/>
+ * Every benchmark sorts a new list built from the same array, so
+ * {@link #copy()} gives the part of each score that is not sorting. The
+ * largest sizes need a large heap and are best run on their own, for example
+ * <code>-p size=10000000 -p list=ArrayList</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SortBenchmark {
+
+    /**
+     * <code>bean</code> or <code>record</code>.
+     */
+    @Param({"bean", "record"})
+    public String kind;
+
+    /**
+     * <code>ArrayList</code> or <code>LinkedList</code>.
+     */
+    @Param({"ArrayList", "LinkedList"})
+    public String list;
+
+    /**
+     * The number of elements sorted.
+     */
+    @Param({"100", "10000", "1000000", "10000000"})
+    public int size;
+
+    /**
+     * <code>random</code>, <code>sorted</code> or <code>reversed</code>.
+     */
+    @Param({"random", "sorted", "reversed"})
+    public String order;
+
+    private Object[] elements;
+
+    private Comparator<Object> baseline;
+
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        if ("bean".equals(kind)) {
+            baseline = (Comparator<Object>) (Comparator<?>) People.beanComparator(2);
+            elements = People.beans(size, 42);
+        } else {
+            baseline = (Comparator<Object>) (Comparator<?>) People.recordComparator(2);
+            elements = People.records(size, 42);
+        }
+
+        People.arrange(elements, order, baseline);
+    }
+
+
+    @Benchmark
+    public List<Object> copy() {
+        return People.list(list, elements);
+    }
+
+
+    @Benchmark
+    public List<Object> baseline() {
+        final List<Object> target = People.list(list, elements);
+        target.sort(baseline);
+        return target;
+    }
+
+
+    @Benchmark
+    public List<Object> sortUtil() {
+        final List<Object> target = People.list(list, elements);
+        SortUtil.sort(target, "lastName", "firstName");
+        return target;
+    }
+
+
+    @Benchmark
+    public List<Object> keySort() {
+        final List<Object> target = People.list(list, elements);
+        SortUtil.keySort(target, "lastName", "firstName");
+        return target;
+    }
+}
@@ -0,0 +1,639 @@
+package com.acidblue.beans.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates a <code>com.acidblue.beans.ComparatorProvider</code> for every
+ * class annotated with <code>com.acidblue.beans.SortableBy</code>.
+ * <p/>
+ * The provider of class <code>PersonBean</code> is the class
+ * <code>PersonBean_SortableBy</code> in the same package (nested classes are
+ * named after all their enclosing classes, such as
+ * <code>Outer_Inner_SortableBy</code>). It holds one comparator per distinct
+ * property list, calling the getters directly and comparing the values as
+ * <code>ComparatorFactory.create(Class, String, String...)</code> does:
+ * primitives by value, <code>String</code>s by <code>compareTo</code>, and
+ * anything else through <code>BeanPropertyComparator.compareValues</code>.
+ * A <code>null</code> part way along a dotted path throws the same
+ * <code>IllegalArgumentException</code> as at run time.
+ * <p/>
+ * Properties are resolved the way <code>BeanPropertyUtil</code> resolves them
+ * at run time: a public <code>getX()</code>, then a public <code>x()</code> as
+ * declared by records, then a public <code>boolean isX()</code>. A property
+ * that cannot be resolved is reported as a compile error on the annotation.
+ * <p/>
+ * The providers generated are listed in
+ * <code>META-INF/services/com.acidblue.beans.ComparatorProvider</code>, merged
+ * with any list already in the class output.
+ * <p/>
+ * The processor refers to the library only by name, so it has no dependency
+ * of its own.
+ */
+@SupportedAnnotationTypes({SortableByProcessor.SORTABLE_BY, SortableByProcessor.SORTABLE_BY_LIST})
+public final class SortableByProcessor extends AbstractProcessor {
+
+    /**
+     * The annotation requesting comparators.
+     */
+    static final String SORTABLE_BY = "com.acidblue.beans.SortableBy";
+
+    /**
+     * The container of repeated {@link #SORTABLE_BY} annotations.
+     */
+    static final String SORTABLE_BY_LIST = SORTABLE_BY + ".List";
+
+    /**
+     * The interface implemented by the generated classes.
+     */
+    private static final String PROVIDER = "com.acidblue.beans.ComparatorProvider";
+
+    /**
+     * The method comparing values that are neither primitives nor strings.
+     */
+    private static final String COMPARE_VALUES = "com.acidblue.beans.BeanPropertyComparator.compareValues";
+
+    /**
+     * The suffix of the generated class names.
+     */
+    private static final String SUFFIX = "_SortableBy";
+
+    /**
+     * The service file listing the generated providers.
+     */
+    private static final String SERVICE_FILE = "META-INF/services/" + PROVIDER;
+
+
+    /**
+     * The binary names of the providers generated so far.
+     */
+    private final Set<String> providers = new TreeSet<>();
+
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment round) {
+        final Set<TypeElement> types = new LinkedHashSet<>();
+
+        for (final TypeElement annotation : annotations) {
+            for (final Element element : round.getElementsAnnotatedWith(annotation)) {
+                types.add((TypeElement) element);
+            }
+        }
+
+        for (final TypeElement type : types) {
+            generate(type);
+        }
+
+        if (round.processingOver() && !providers.isEmpty()) {
+            writeServiceFile();
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Generates the provider of one annotated class.
+     *
+     * @param type the annotated class
+     */
+    private void generate(final TypeElement type) {
+        if (!accessible(type)) {
+            error(type, null, "@SortableBy class %s must not be private, local or anonymous", type);
+            return;
+        }
+
+        // the comparisons of each distinct property list, keyed by the list as given to getComparator
+        final Map<String, List<Property>> comparators = new LinkedHashMap<>();
+        boolean valid = true;
+
+        for (final AnnotationMirror annotation : sortableBy(type)) {
+            final List<String> names = values(annotation);
+
+            if (names.isEmpty()) {
+                error(type, annotation, "@SortableBy needs at least one property");
+                valid = false;
+                continue;
+            }
+
+            final List<Property> properties = new ArrayList<>();
+
+            for (final String name : names) {
+                final Property property = resolve(type, annotation, name);
+
+                if (property == null) {
+                    valid = false;
+                } else {
+                    properties.add(property);
+                }
+            }
+
+            comparators.putIfAbsent(String.join(",", names), properties);
+        }
+
+        if (!valid) {
+            return;
+        }
+
+        final String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        final String simpleName = flatName(type) + SUFFIX;
+        final String name = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(name, type).openWriter()) {
+            writer.write(source(type, packageName, simpleName, comparators));
+        }
+        catch (IOException exception) {
+            error(type, null, "Cannot write %s: %s", name, exception.getMessage());
+            return;
+        }
+
+        providers.add(name);
+    }
+
+
+    /**
+     * Returns the {@link #SORTABLE_BY} annotations of a class, including those held by a {@link #SORTABLE_BY_LIST}.
+     *
+     * @param type the annotated class
+     * @return the annotations, in declaration order
+     */
+    private List<AnnotationMirror> sortableBy(final TypeElement type) {
+        final List<AnnotationMirror> result = new ArrayList<>();
+
+        for (final AnnotationMirror annotation : type.getAnnotationMirrors()) {
+            final String name = ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName()
+                    .toString();
+
+            if (SORTABLE_BY.equals(name)) {
+                result.add(annotation);
+            } else if (SORTABLE_BY_LIST.equals(name)) {
+                for (final AnnotationValue value : array(annotation)) {
+                    result.add((AnnotationMirror) value.getValue());
+                }
+            }
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Returns the property names of a {@link #SORTABLE_BY} annotation.
+     *
+     * @param annotation the annotation
+     * @return the property names
+     */
+    private static List<String> values(final AnnotationMirror annotation) {
+        final List<String> result = new ArrayList<>();
+
+        for (final AnnotationValue value : array(annotation)) {
+            result.add((String) value.getValue());
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Returns the elements of the array <code>value</code> of an annotation.
+     *
+     * @param annotation the annotation
+     * @return the array elements
+     */
+    @SuppressWarnings("unchecked")
+    private static List<? extends AnnotationValue> array(final AnnotationMirror annotation) {
+        for (final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : annotation.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals("value")) {
+                return (List<? extends AnnotationValue>) entry.getValue().getValue();
+            }
+        }
+
+        return List.of();
+    }
+
+
+    /**
+     * Resolves a property, or dotted property path, to a chain of read method calls.
+     *
+     * @param type       the annotated class
+     * @param annotation the annotation naming the property, for error reporting
+     * @param path       the property name or path
+     * @return the property, or <code>null</code> if it cannot be resolved, which has been reported
+     */
+    private Property resolve(final TypeElement type, final AnnotationMirror annotation, final String path) {
+        final List<String> calls = new ArrayList<>();
+        final List<String> nulls = new ArrayList<>();
+        TypeMirror current = type.asType();
+
+        for (final String segment : path.split("\\.", -1)) {
+            if (current.getKind() != TypeKind.DECLARED) {
+                error(type, annotation, "Cannot read property '%s' of %s: %s is not a bean", path, type, current);
+                return null;
+            }
+
+            final DeclaredType declared = (DeclaredType) current;
+            final ExecutableElement read = segment.isEmpty() ? null : readMethod(declared, segment);
+
+            if (read == null) {
+                error(type, annotation, "No public read method for property '%s' in %s", segment, current);
+                return null;
+            }
+
+            calls.add("." + read.getSimpleName() + "()");
+            // the message BeanPropertyComparator reports when the value is null part way along the path
+            nulls.add(processingEnv.getElementUtils().getConstantExpression(
+                    String.format("Problem accessing property '%s': '%s' was null", path, segment)));
+            current = processingEnv.getTypeUtils().erasure(
+                    ((ExecutableType) processingEnv.getTypeUtils().asMemberOf(declared, read)).getReturnType());
+        }
+
+        return new Property(calls, nulls, current);
+    }
+
+
+    /**
+     * Finds the read method of a property the way <code>BeanPropertyUtil</code> does.
+     *
+     * @param type the type declaring the property
+     * @param name the property name
+     * @return the read method, or <code>null</code> if there is none
+     */
+    private ExecutableElement readMethod(final DeclaredType type, final String name) {
+        final List<ExecutableElement> methods = ElementFilter.methodsIn(
+                processingEnv.getElementUtils().getAllMembers((TypeElement) type.asElement()));
+        final String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+
+        ExecutableElement read = find(methods, "get" + capitalized);
+
+        if (read == null) {
+            read = find(methods, name);
+        }
+
+        if (read == null) {
+            read = find(methods, "is" + capitalized);
+
+            if (read != null && read.getReturnType().getKind() != TypeKind.BOOLEAN) {
+                read = null;
+            }
+        }
+
+        return read;
+    }
+
+
+    /**
+     * Finds a public, non static method taking no arguments and returning a value.
+     *
+     * @param methods the methods to search
+     * @param name    the method name
+     * @return the method, or <code>null</code> if there is none
+     */
+    private static ExecutableElement find(final List<ExecutableElement> methods, final String name) {
+        for (final ExecutableElement method : methods) {
+            if (method.getSimpleName().contentEquals(name)
+                    && method.getModifiers().contains(Modifier.PUBLIC)
+                    && !method.getModifiers().contains(Modifier.STATIC)
+                    && method.getParameters().isEmpty()
+                    && method.getReturnType().getKind() != TypeKind.VOID) {
+                return method;
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Writes the source of a provider.
+     *
+     * @param type        the annotated class
+     * @param packageName the package of the provider
+     * @param simpleName  the simple name of the provider
+     * @param comparators the comparisons of each property list
+     * @return the source
+     */
+    private String source(final TypeElement type, final String packageName, final String simpleName,
+                          final Map<String, List<Property>> comparators) {
+
+        final String bean = type.getQualifiedName() + wildcards(type);
+        final StringBuilder out = new StringBuilder();
+
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+
+        out.append("/**\n")
+                .append(" * Comparators of {@link ").append(type.getQualifiedName())
+                .append("} generated from its {@code @SortableBy} annotations.\n")
+                .append(" */\n");
+
+        if (processingEnv.getElementUtils().getTypeElement("javax.annotation.processing.Generated") != null) {
+            out.append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n");
+        }
+
+        out.append("public final class ").append(simpleName).append(" implements ").append(PROVIDER).append(" {\n");
+
+        for (int i = 0; i < comparators.size(); i++) {
+            out.append("\n    private static final java.util.Comparator<").append(bean).append("> COMPARATOR_")
+                    .append(i).append(" = ").append(simpleName).append("::compare").append(i).append(";\n");
+        }
+
+        out.append("\n\n    @Override\n")
+                .append("    public Class<?> getType() {\n")
+                .append("        return ").append(type.getQualifiedName()).append(".class;\n")
+                .append("    }\n");
+
+        out.append("\n\n    @Override\n")
+                .append("    public java.util.Comparator<?> getComparator(final String... properties) {\n")
+                .append("        switch (String.join(\",\", properties)) {\n");
+
+        int index = 0;
+
+        for (final String key : comparators.keySet()) {
+            out.append("            case ").append(processingEnv.getElementUtils().getConstantExpression(key))
+                    .append(":\n")
+                    .append("                return COMPARATOR_").append(index++).append(";\n");
+        }
+
+        out.append("            default:\n")
+                .append("                return null;\n")
+                .append("        }\n")
+                .append("    }\n");
+
+        index = 0;
+
+        for (final List<Property> properties : comparators.values()) {
+            out.append("\n\n    private static int compare").append(index++).append("(final ").append(bean)
+                    .append(" o1, final ").append(bean).append(" o2) {\n");
+
+            for (int i = 0; i < properties.size(); i++) {
+                properties.get(i).compare(out, i);
+
+                if (i < properties.size() - 1) {
+                    out.append("        if (result").append(i).append(" != 0) {\n")
+                            .append("            return result").append(i).append(";\n")
+                            .append("        }\n\n");
+                } else {
+                    out.append("        return result").append(i).append(";\n");
+                }
+            }
+
+            out.append("    }\n");
+        }
+
+        return out.append("}\n").toString();
+    }
+
+
+    /**
+     * Writes the list of generated providers, merged with the list already in the class output.
+     */
+    private void writeServiceFile() {
+        try {
+            final FileObject existing = processingEnv.getFiler()
+                    .getResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(existing.openInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+
+                while ((line = reader.readLine()) != null) {
+                    final int comment = line.indexOf('#');
+                    final String provider = (comment < 0 ? line : line.substring(0, comment)).trim();
+
+                    if (!provider.isEmpty()) {
+                        providers.add(provider);
+                    }
+                }
+            }
+        }
+        catch (IOException exception) {
+            // no list yet
+        }
+
+        try (Writer writer = processingEnv.getFiler()
+                .createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE).openWriter()) {
+            for (final String provider : providers) {
+                writer.write(provider);
+                writer.write('\n');
+            }
+        }
+        catch (IOException exception) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    String.format("Cannot write %s: %s", SERVICE_FILE, exception.getMessage()));
+        }
+    }
+
+
+    /**
+     * Determines if a class can be used from a class generated in its package.
+     *
+     * @param type the class
+     * @return <code>true</code> if neither it nor an enclosing class is private, local or anonymous
+     */
+    private static boolean accessible(final TypeElement type) {
+        for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            final TypeElement enclosing = (TypeElement) element;
+
+            if (enclosing.getModifiers().contains(Modifier.PRIVATE)
+                    || enclosing.getNestingKind() == NestingKind.LOCAL
+                    || enclosing.getNestingKind() == NestingKind.ANONYMOUS) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Returns the simple names of a class and its enclosing classes, outermost first, joined by underscores.
+     *
+     * @param type the class
+     * @return the flattened name
+     */
+    private static String flatName(final TypeElement type) {
+        final Element enclosing = type.getEnclosingElement();
+
+        return enclosing instanceof TypeElement
+                ? flatName((TypeElement) enclosing) + "_" + type.getSimpleName()
+                : type.getSimpleName().toString();
+    }
+
+
+    /**
+     * Returns the wildcard type arguments of a generic class.
+     *
+     * @param type the class
+     * @return for example <code>&lt;?, ?&gt;</code>, or an empty string if the class is not generic
+     */
+    private static String wildcards(final TypeElement type) {
+        final int count = type.getTypeParameters().size();
+
+        return count == 0 ? "" : "<" + String.join(", ", Collections.nCopies(count, "?")) + ">";
+    }
+
+
+    /**
+     * Reports an error.
+     *
+     * @param element    the element in error
+     * @param annotation the annotation in error, or <code>null</code>
+     * @param format     the message format
+     * @param arguments  the message arguments
+     */
+    private void error(final Element element, final AnnotationMirror annotation, final String format,
+                       final Object... arguments) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, String.format(format, arguments),
+                element, annotation);
+    }
+
+
+    /**
+     * A property resolved to the read method calls returning it.
+     */
+    private static final class Property {
+
+        /**
+         * The call reading each segment of the path, such as <code>.getAddress()</code> and
+         * <code>.getCity()</code>.
+         */
+        private final List<String> calls;
+
+        /**
+         * For each segment, the string literal of the message of the exception thrown if its value is
+         * <code>null</code> and followed by another segment.
+         */
+        private final List<String> nulls;
+
+        /**
+         * The erased type of the value.
+         */
+        private final TypeMirror type;
+
+
+        Property(final List<String> calls, final List<String> nulls, final TypeMirror type) {
+            this.calls = calls;
+            this.nulls = nulls;
+            this.type = type;
+        }
+
+
+        /**
+         * Writes the statements comparing the property of <code>o1</code> and <code>o2</code> into a local
+         * variable <code>result<em>i</em></code>.
+         *
+         * @param out the source being written
+         * @param i   the index of the property
+         */
+        void compare(final StringBuilder out, final int i) {
+            final String v1 = read(out, "o1", i);
+            final String v2 = read(out, "o2", i);
+            final String method = comparison();
+
+            if (method != null) {
+                out.append("        final int result").append(i).append(" = ")
+                        .append(method).append("(").append(v1).append(", ").append(v2).append(");\n");
+            } else {
+                // strings are read once, as a null first value must not be compared with compareTo
+                out.append("        final String a").append(i).append(" = ").append(v1).append(";\n")
+                        .append("        final String b").append(i).append(" = ").append(v2).append(";\n")
+                        .append("        final int result").append(i).append(" = a").append(i)
+                        .append(" != null ? a").append(i).append(".compareTo(b").append(i).append(") : ")
+                        .append(COMPARE_VALUES).append("(a").append(i).append(", b").append(i).append(");\n");
+            }
+        }
+
+
+        /**
+         * Writes the statements reading the segments of the path but the last into local variables, throwing
+         * <code>IllegalArgumentException</code> as <code>BeanPropertyComparator</code> does if one is
+         * <code>null</code>.
+         *
+         * @param out  the source being written
+         * @param bean the variable holding the bean
+         * @param i    the index of the property
+         * @return the expression reading the value from the last variable
+         */
+        private String read(final StringBuilder out, final String bean, final int i) {
+            String owner = bean;
+
+            for (int s = 0; s < calls.size() - 1; s++) {
+                final String variable = bean + "_" + i + "_" + s;
+
+                out.append("        final var ").append(variable).append(" = ").append(owner).append(calls.get(s))
+                        .append(";\n")
+                        .append("        if (").append(variable).append(" == null) {\n")
+                        .append("            throw new IllegalArgumentException(").append(nulls.get(s)).append(");\n")
+                        .append("        }\n");
+                owner = variable;
+            }
+
+            return owner + calls.get(calls.size() - 1);
+        }
+
+
+        /**
+         * Returns the static method comparing values of the property.
+         *
+         * @return the qualified method name, or <code>null</code> for strings
+         */
+        private String comparison() {
+            switch (type.getKind()) {
+                case INT:
+                case SHORT:
+                case BYTE:
+                    return "Integer.compare";
+                case LONG:
+                    return "Long.compare";
+                case DOUBLE:
+                    return "Double.compare";
+                case FLOAT:
+                    return "Float.compare";
+                case CHAR:
+                    return "Character.compare";
+                case BOOLEAN:
+                    return "Boolean.compare";
+                default:
+                    return "java.lang.String".equals(type.toString()) ? null : COMPARE_VALUES;
+            }
+        }
+    }
+}
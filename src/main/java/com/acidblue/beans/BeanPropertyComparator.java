@@ -1,5 +1,6 @@
 package com.acidblue.beans;
 
+import java.lang.invoke.MethodHandles;
 import java.util.Comparator;
 
 /**
@@ -42,6 +43,24 @@ import java.util.Comparator;
  * <b>Note</b> this uses the {@link java.beans.BeanInfo} class to obtain the
  * accessor method, so that provided a {@link java.beans.BeanInfo} is given, it
  * will work regardless of the name of the read method.
+ * <p/>
+ * Properties of a primitive type (such as <code>int</code>, <code>long</code>
+ * or <code>double</code>) are read and compared without being boxed, unless a
+ * comparator is given.
+ * <p/>
+ * The property may also be a dotted path of nested properties, such as
+ * <code>customer.address.city</code>.
+ * <p/>
+ * Each comparator remembers the accessors of the first two bean classes it
+ * compares, so sorting a list mixing two classes that share the property
+ * costs about as much as sorting a list of one class.
+ * <p/>
+ * Given a {@link MethodHandles.Lookup}, the property is read from the record
+ * component or field of that name directly, whatever its visibility, so that
+ * package-private beans without public getters can be compared:
+ * <pre>
+ *      Comparator c = new BeanPropertyComparator("name", null, false, MethodHandles.lookup());
+ * </pre>
  *
  * @author Alex Blewitt &lt;<I><A href="mailto:Alex.Blewitt@ioshq.com">Alex.Blewitt@ioshq.com</A></I>&gt;
  * @version 1.0
@@ -64,6 +83,39 @@ public class BeanPropertyComparator<T>
      */
     private final Comparator<T> comparator;
 
+    /**
+     * Whether a <code>null</code> part way along a property path yields
+     * <code>null</code> rather than an error.
+     */
+    private final boolean nullSafe;
+
+    /**
+     * The access granted by the caller, or <code>null</code> to read public
+     * read methods only.
+     */
+    private final MethodHandles.Lookup lookup;
+
+    /**
+     * The key of the property's accessors in {@link BeanPropertyUtil}.
+     */
+    private final String key;
+
+    /**
+     * The first entry of the inline cache of accessors, or <code>null</code>.
+     * <p/>
+     * Most lists hold beans of one or two classes, so the accessors of the
+     * first two classes seen are kept here and checked against the class of
+     * each bean before falling back to the shared registry of
+     * {@link BeanPropertyUtil}. Accessors are immutable, so these fields may
+     * be read and written by several threads without locking.
+     */
+    private PropertyAccessor first;
+
+    /**
+     * The second entry of the inline cache of accessors, or <code>null</code>.
+     */
+    private PropertyAccessor second;
+
 
     /**
      * Creates a new Comparator using the property defined.
@@ -98,8 +150,62 @@ public class BeanPropertyComparator<T>
      */
     public BeanPropertyComparator(final String property, final Comparator<T> comparator) {
 
+        this(property, comparator, false);
+    }
+
+
+    /**
+     * Creates a new Comparator using the property, or dotted property path,
+     * defined.
+     * <p/>
+     * A property path such as <code>customer.address.city</code> is read one
+     * segment at a time. If <em>nullSafe</em> is <code>true</code>, a
+     * <code>null</code> value part way along the path yields a
+     * <code>null</code> property value; without a comparator such values are
+     * ordered before all others. Otherwise it is reported as an
+     * <code>IllegalArgumentException</code>.
+     *
+     * @param property   the property name or path to use
+     * @param comparator the comparator to compare properties, or
+     *                   <code>null</code> to compare them as
+     *                   {@link java.lang.Comparable}
+     * @param nullSafe   whether a <code>null</code> part way along the path
+     *                   yields <code>null</code>
+     */
+    public BeanPropertyComparator(final String property, final Comparator<T> comparator, final boolean nullSafe) {
+
+        this(property, comparator, nullSafe, null);
+    }
+
+
+    /**
+     * Creates a new Comparator reading the property with the access granted
+     * by <em>lookup</em>.
+     * <p/>
+     * Each segment of the property is read from the accessor of the record
+     * component of that name, otherwise from the field of that name, otherwise
+     * from its read method, whatever their visibility. <em>lookup</em> must
+     * have private access to the bean class, as the lookup of a class in the
+     * same package does. Without a lookup this is the same as
+     * {@link #BeanPropertyComparator(String, Comparator, boolean)}.
+     *
+     * @param property   the property name or path to use
+     * @param comparator the comparator to compare properties, or
+     *                   <code>null</code> to compare them as
+     *                   {@link java.lang.Comparable}
+     * @param nullSafe   whether a <code>null</code> part way along the path
+     *                   yields <code>null</code>
+     * @param lookup     the access granted by the caller, or
+     *                   <code>null</code> to read public read methods only
+     */
+    public BeanPropertyComparator(final String property, final Comparator<T> comparator, final boolean nullSafe,
+                                  final MethodHandles.Lookup lookup) {
+
         this.property = property;
         this.comparator = comparator;
+        this.nullSafe = nullSafe;
+        this.lookup = lookup;
+        this.key = property == null ? null : BeanPropertyUtil.key(property, nullSafe);
     }
 
 
@@ -135,31 +241,183 @@ public class BeanPropertyComparator<T>
     @SuppressWarnings("unchecked")
     public int compare(final T o1, final T o2) throws IllegalArgumentException {
 
+        final long start = SortMetrics.start();
+
+        if (comparator == null) {
+            final PropertyAccessor a1 = accessor(o1);
+            final PropertyAccessor a2 = accessor(o2);
+
+            // compare primitive properties without boxing them, even when the beans are of different classes
+            if (a1.getKind() == a2.getKind() && a1.getKind() != PropertyAccessor.Kind.OBJECT) {
+                final int result;
+
+                try {
+                    switch (a1.getKind()) {
+                        case INT:
+                            final int i1 = a1.getInt(o1);
+                            final int i2 = a2.getInt(o2);
+                            final long intsRead = SortMetrics.gettersCalled(start);
+                            result = Integer.compare(i1, i2);
+                            SortMetrics.compared(intsRead);
+                            break;
+                        case LONG:
+                            final long l1 = a1.getLong(o1);
+                            final long l2 = a2.getLong(o2);
+                            final long longsRead = SortMetrics.gettersCalled(start);
+                            result = Long.compare(l1, l2);
+                            SortMetrics.compared(longsRead);
+                            break;
+                        default:
+                            final double d1 = a1.getDouble(o1);
+                            final double d2 = a2.getDouble(o2);
+                            final long doublesRead = SortMetrics.gettersCalled(start);
+                            result = Double.compare(d1, d2);
+                            SortMetrics.compared(doublesRead);
+                    }
+                }
+                catch (RuntimeException exception) {
+                    throw problem(exception);
+                }
+
+                return result;
+            }
+
+            final Object p1;
+            final Object p2;
+
+            try {
+                p1 = a1.get(o1);
+                p2 = a2.get(o2);
+            }
+            catch (RuntimeException exception) {
+                throw problem(exception);
+            }
+
+            final long read = SortMetrics.gettersCalled(start);
+            final int result = nullSafe && (p1 == null || p2 == null)
+                    ? (p1 == null ? (p2 == null ? 0 : -1) : 1)
+                    : compareValues(p1, p2);
+
+            SortMetrics.compared(read);
+
+            return result;
+        }
+
         // Get the value of the properties
-        final T p1 = (T) BeanPropertyUtil.getProperty(property, o1);
-        final T p2 =  (T) BeanPropertyUtil.getProperty(property, o2);
+        final T p1;
+        final T p2;
 
-        final int value;
+        try {
+            p1 = (T) accessor(o1).get(o1);
+            p2 = (T) accessor(o2).get(o2);
+        }
+        catch (IllegalArgumentException exception) {
+            throw exception;
+        }
+        catch (RuntimeException exception) {
+            throw problem(exception);
+        }
 
-        if (comparator == null) {
-            // try to find p1 or p2 that implements Comparator
-            if (p1 instanceof Comparable) {
-                value = ((Comparable<T>) p1).compareTo(p2);
-            } else if (p2 instanceof Comparable) {
-                value = ((Comparable<T>) p2).compareTo(p1);
-            } else {
-                // we have no comparable instances; try String comparison
-                final String s1 = String.valueOf(p1); // calls toString safely
-                final String s2 = String.valueOf(p2);
-                value = s1.compareTo(s2); // String implements comparable
+        final long read = SortMetrics.gettersCalled(start);
+        final int result = comparator.compare(p1, p2);
+
+        SortMetrics.compared(read);
+
+        return result;
+    }
+
+
+    /**
+     * Returns the accessor of the property for the class of <em>instance</em>.
+     * <p/>
+     * The two entries of the inline cache are checked first. On a miss the
+     * accessor is taken from the shared registry and stored in a free entry;
+     * once both entries are taken, further classes always use the registry.
+     *
+     * @param instance the bean
+     * @return the accessor, never <code>null</code>
+     * @throws IllegalArgumentException if <em>instance</em> is <code>null</code> or the property cannot be found or
+     *                                  accessed
+     */
+    private PropertyAccessor accessor(final Object instance) {
+        if (instance != null) {
+            final Class<?> type = instance.getClass();
+            final PropertyAccessor cached = first;
+
+            if (cached != null && cached.getOwner() == type) {
+                SortMetrics.accessorHit();
+                return cached;
+            }
+
+            final PropertyAccessor other = second;
+
+            if (other != null && other.getOwner() == type) {
+                SortMetrics.accessorHit();
+                return other;
             }
+        }
+
+        final PropertyAccessor resolved = BeanPropertyUtil.getAccessor(key, instance, lookup);
+
+        if (first == null) {
+            first = resolved;
+        } else if (second == null && first != resolved) {
+            second = resolved;
+        }
+
+        return resolved;
+    }
+
+
+    /**
+     * Wraps an exception thrown while reading the property.
+     *
+     * @param exception the exception thrown by the read method
+     * @return the exception to throw
+     */
+    private IllegalArgumentException problem(final RuntimeException exception) {
+        return new IllegalArgumentException(String.format("Problem accessing property '%s': %s",
+                property, exception.getMessage()), exception);
+    }
+
+
+    /**
+     * Compares two property values without a {@link java.util.Comparator}.
+     * <p/>
+     * If either value implements {@link java.lang.Comparable} it is used,
+     * otherwise both values are converted to a <CODE>String</CODE> with
+     * {@link java.lang.String#valueOf(Object)} and compared.
+     * <p/>
+     * This is public for the comparators generated from {@link SortableBy}.
+     *
+     * @param p1 the value to compare
+     * @param p2 the value to compare to
+     * @return the result of the comparison
+     * @see #compare(Object, Object)
+     */
+    @SuppressWarnings("unchecked")
+    public static int compareValues(final Object p1, final Object p2) {
+
+        final int value;
+
+        // try to find p1 or p2 that implements Comparator
+        if (p1 instanceof Comparable) {
+            value = ((Comparable<Object>) p1).compareTo(p2);
+        } else if (p2 instanceof Comparable) {
+            value = ((Comparable<Object>) p2).compareTo(p1);
         } else {
-            value = comparator.compare(p1, p2);
+            // we have no comparable instances; try String comparison
+            SortMetrics.stringFallback();
+
+            final String s1 = String.valueOf(p1); // calls toString safely
+            final String s2 = String.valueOf(p2);
+            value = s1.compareTo(s2); // String implements comparable
         }
-        
+
         return value;
     }
 
+
     /**
      * Factory method for creating bean property comparators.
      *
@@ -4,16 +4,40 @@ import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 /**
  * Provides utility methods for accessing JavaBeans.
+ * <p/>
+ * Read methods are resolved once per class and property name and compiled into
+ * a {@link Function} (using {@link LambdaMetafactory} where possible), which is
+ * then kept in a per-class registry. Read methods returning primitives are also
+ * compiled into primitive functions, so they can be read without boxing. The registry is backed by a
+ * {@link ClassValue}, so it is safe to use from multiple threads and does not
+ * keep classes from being unloaded.
+ * <p/>
+ * Callers may also grant access to their own classes with a
+ * {@link MethodHandles.Lookup}. Properties are then read from the record
+ * component accessor or directly from the backing field, whatever its
+ * visibility, so beans need neither be public nor have public getters.
  *
  * @author briggs <a href="mailto:acidbriggs@gmail.com">acidbriggs@gmail.com</a>
  * @author Alex Blewitt <i><a href="mailto:Alex.Blewitt@ioshq.com">Alex.Blewitt@ioshq.com</a></i>
- * @version 1.1
+ * @version 1.2
  */
 public final class BeanPropertyUtil {
     /**
@@ -24,20 +48,50 @@ public final class BeanPropertyUtil {
 
 
     /**
-     * Stores the list of class/property names with associated read methods
+     * The lookup used to compile read methods.
      */
-    private static final Map<String, Method> map = new WeakHashMap<>();
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+
+    /**
+     * Prefixes the registry key of a null-safe property path.
+     */
+    private static final String NULL_SAFE = "?";
+
+
+    /**
+     * Stores, per class, the property names with their associated accessors.
+     */
+    private static final ClassValue<ConcurrentMap<String, PropertyAccessor>> ACCESSORS =
+            new ClassValue<ConcurrentMap<String, PropertyAccessor>>() {
+                @Override
+                protected ConcurrentMap<String, PropertyAccessor> computeValue(final Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+
+
+    /**
+     * Stores, per class, the accessors resolved with access granted by a caller's lookup.
+     */
+    private static final ClassValue<ConcurrentMap<String, PropertyAccessor>> GRANTED =
+            new ClassValue<ConcurrentMap<String, PropertyAccessor>>() {
+                @Override
+                protected ConcurrentMap<String, PropertyAccessor> computeValue(final Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
 
 
     /**
      * Return the value of the JavaBean <CODE>property</CODE> from <CODE>instance</CODE>.
      * <p/>
-     * Uses {@link java.beans.Introspector} to obtain the appropriate {@link java.beans.PropertyDescriptor}, and then
-     * the accessor method is invoked dynamically using {@link java.lang.reflect.Method}.
+     * The accessor for the property is resolved on first use for the class of <CODE>instance</CODE> and reused for
+     * every later call.
      *
      * @param name     the property name to look up
      * @param instance the bean instance to use
-     * @return Object value of the property. Primitive types are wrapped automatically by the reflection package.
+     * @return Object value of the property. Primitive types are wrapped automatically.
      * @throws IllegalArgumentException if the <I>name</I> does not exist in <I>instance</I> or there is an exception
      *                                  dynamically invoking the accessor method .
      * @see java.beans.Introspector
@@ -49,14 +103,36 @@ public final class BeanPropertyUtil {
                                      final Object instance)
             throws IllegalArgumentException {
 
+        return getProperty(name, instance, false);
+    }
+
+
+    /**
+     * Return the value of the JavaBean <CODE>property</CODE> from <CODE>instance</CODE>, where the property may be a
+     * dotted path such as <code>customer.address.city</code>.
+     * <p/>
+     * Each segment of a path is read from the value of the previous one. The accessor of every segment is resolved
+     * once, from the declared type of the previous segment, and the whole path is cached for the class of
+     * <CODE>instance</CODE>. When <em>nullSafe</em> is <code>true</code> a <code>null</code> value part way along
+     * the path yields <code>null</code>; otherwise it is reported as an <code>IllegalArgumentException</code>.
+     *
+     * @param name     the property name or path to look up
+     * @param instance the bean instance to use
+     * @param nullSafe whether a <code>null</code> part way along a path yields <code>null</code>
+     * @return Object value of the property. Primitive types are wrapped automatically.
+     * @throws IllegalArgumentException if the <I>name</I> does not exist in <I>instance</I> or there is an exception
+     *                                  dynamically invoking the accessor method .
+     */
+    public static Object getProperty(final String name,
+                                     final Object instance,
+                                     final boolean nullSafe)
+            throws IllegalArgumentException {
+
         try {
-            final Method read = getReadMethod(name, instance);
-            
-            if (read == null) {
-                throw new IllegalArgumentException(String.format("Cannot find instance with property '%s'", name));
-            }
-            
-            return read.invoke(instance);
+            return getAccessor(key(name, nullSafe), instance.getClass()).get(instance);
+        }
+        catch (IllegalArgumentException exception) {
+            throw exception;
         }
         catch (Exception exception) {
             throw new IllegalArgumentException(String.format("Problem accessing property '%s': %s",
@@ -67,51 +143,423 @@ public final class BeanPropertyUtil {
 
 
     /**
-     * Obtain the read method for property <em>name</em> associated with <em>instance</em>. Once the method is located,
-     * it is stored in {@link #map} using a format <code>fully.qualified.Class#name</code> so that it is obtained
-     * quicker on subsequent requests. As the map is a {@link java.util.WeakHashMap} then memory requests may cause
-     * parts of this cache to be lost.
+     * Obtain the read method for property <em>name</em> associated with <em>instance</em>.
      *
      * @param name     the property name
      * @param instance the instance to query
-     * @return the method of the underlying property
-     * @throws IntrospectionException   if this method attempt to read an unreadable property
-     * @throws IllegalArgumentException if the property given cannot be found in the given instance
-     */
-//    private static Method getReadMethod(final String name,
-//                                        final Object instance)
-//            throws IllegalArgumentException, IntrospectionException {
-//
-//        final String id = instance.getClass() + "#" + name;
-//
-//        if (!map.containsKey(id)) {
-//            return locateMethod(instance, name);
-//        } else {
-//            throw new IllegalArgumentException(String.format("Cannot find instance with property '%s'", name));
-//        }
-//    }
-
+     * @return the method of the underlying property, or <code>null</code> if it cannot be found
+     */
     public static Method getReadMethod(final String name, final Object instance) {
-        try {
-            // First try the traditional JavaBean getter pattern
-            String capitalizedName = name.substring(0, 1).toUpperCase() + name.substring(1);
-            String getterName = "get" + capitalizedName;
+        final PropertyAccessor accessor = ACCESSORS.get(instance.getClass()).get(name);
+
+        if (accessor != null) {
+            return accessor.getMethod();
+        }
 
+        if (name.indexOf('.') >= 0) {
             try {
-                return instance.getClass().getMethod(getterName);
-            } catch (NoSuchMethodException e) {
-                // If traditional getter isn't found, try Record pattern
-                return instance.getClass().getMethod(name);
+                return getAccessor(name, instance.getClass()).getMethod();
+            }
+            catch (IllegalArgumentException exception) {
+                return null;
+            }
+        }
+
+        return locateMethod(instance.getClass(), name);
+    }
+
+
+    /**
+     * Returns the accessor of property <em>name</em> for the class of <em>instance</em>.
+     *
+     * @param name     the property name
+     * @param instance the instance to query
+     * @return the accessor, never <code>null</code>
+     * @throws IllegalArgumentException if <em>instance</em> is <code>null</code>, or the property cannot be found or
+     *                                  its read method cannot be accessed
+     */
+    static PropertyAccessor getAccessor(final String name, final Object instance) {
+        if (instance == null) {
+            throw new IllegalArgumentException(String.format("Problem accessing property '%s': %s",
+                    name, "instance was null"));
+        }
+
+        return getAccessor(name, instance.getClass());
+    }
+
+
+    /**
+     * Returns the accessor of property <em>name</em> for <em>type</em>, resolving and compiling it on first use.
+     *
+     * @param name the property name
+     * @param type the class declaring the property
+     * @return the accessor, never <code>null</code>
+     * @throws IllegalArgumentException if the property cannot be found or its read method cannot be accessed
+     */
+    static PropertyAccessor getAccessor(final String name, final Class<?> type) {
+        final ConcurrentMap<String, PropertyAccessor> accessors = ACCESSORS.get(type);
+        final PropertyAccessor accessor = accessors.get(name);
+
+        if (accessor != null) {
+            SortMetrics.accessorHit();
+            return accessor;
+        }
+
+        SortMetrics.accessorMiss();
+
+        // resolved outside of the map, as resolving a path looks up its segments in the same map
+        final PropertyAccessor resolved = name.startsWith(NULL_SAFE) || name.indexOf('.') >= 0
+                ? resolvePath(name, type, null)
+                : resolve(name, type);
+        final PropertyAccessor existing = accessors.putIfAbsent(name, resolved);
+
+        return existing != null ? existing : resolved;
+    }
+
+
+    /**
+     * Returns the accessor of property <em>name</em> for the class of <em>instance</em>, reading it with the access
+     * granted by <em>lookup</em>.
+     *
+     * @param name     the property name
+     * @param instance the instance to query
+     * @param lookup   the access granted by the caller, or <code>null</code> to use public read methods only
+     * @return the accessor, never <code>null</code>
+     * @throws IllegalArgumentException if <em>instance</em> is <code>null</code>, or the property cannot be found or
+     *                                  accessed
+     * @see #getAccessor(String, Class, MethodHandles.Lookup)
+     */
+    static PropertyAccessor getAccessor(final String name, final Object instance, final MethodHandles.Lookup lookup) {
+        if (instance == null) {
+            throw new IllegalArgumentException(String.format("Problem accessing property '%s': %s",
+                    name, "instance was null"));
+        }
+
+        return getAccessor(name, instance.getClass(), lookup);
+    }
+
+
+    /**
+     * Returns the accessor of property <em>name</em> for <em>type</em>, reading it with the access granted by
+     * <em>lookup</em>.
+     * <p/>
+     * The property is read from the accessor of the record component of that name, otherwise from the instance
+     * field of that name declared by <em>type</em> or a superclass, otherwise from a <code>getX()</code>,
+     * <code>x()</code> or <code>isX()</code> method of any visibility. <em>lookup</em> must have private access to
+     * the class declaring the field or method, as a lookup created by that class or one in the same package of an
+     * open module does. Segments of a property path that are only known at run time are read through public read
+     * methods.
+     *
+     * @param name   the property name or path
+     * @param type   the class declaring the property
+     * @param lookup the access granted by the caller, or <code>null</code> to use public read methods only
+     * @return the accessor, never <code>null</code>
+     * @throws IllegalArgumentException if the property cannot be found, or <em>lookup</em> does not grant access
+     *                                  to it
+     */
+    static PropertyAccessor getAccessor(final String name, final Class<?> type, final MethodHandles.Lookup lookup) {
+        if (lookup == null) {
+            return getAccessor(name, type);
+        }
+
+        final MethodHandles.Lookup access = access(name, type, lookup);
+        final ConcurrentMap<String, PropertyAccessor> accessors = GRANTED.get(type);
+        final PropertyAccessor accessor = accessors.get(name);
+
+        if (accessor != null) {
+            SortMetrics.accessorHit();
+            return accessor;
+        }
+
+        SortMetrics.accessorMiss();
+
+        final PropertyAccessor resolved = name.startsWith(NULL_SAFE) || name.indexOf('.') >= 0
+                ? resolvePath(name, type, lookup)
+                : resolve(name, type, access, lookup);
+        final PropertyAccessor existing = accessors.putIfAbsent(name, resolved);
+
+        return existing != null ? existing : resolved;
+    }
+
+
+    /**
+     * Returns the registry key of property <em>name</em>.
+     *
+     * @param name     the property name or path
+     * @param nullSafe whether a <code>null</code> part way along a path yields <code>null</code>
+     * @return the key under which the accessor is registered
+     */
+    static String key(final String name, final boolean nullSafe) {
+        return nullSafe ? NULL_SAFE + name : name;
+    }
+
+
+    /**
+     * Locates and compiles the accessor of property <em>name</em> for <em>type</em>.
+     *
+     * @param name the property name
+     * @param type the class declaring the property
+     * @return a new accessor
+     */
+    private static PropertyAccessor resolve(final String name, final Class<?> type) {
+        final Method read = locateMethod(type, name);
+
+        if (read == null) {
+            throw new IllegalArgumentException(String.format("Cannot find instance with property '%s'", name));
+        }
+
+        try {
+            return compile(type, name, read);
+        }
+        catch (ReflectiveOperationException exception) {
+            throw new IllegalArgumentException(String.format("Problem accessing property '%s': %s",
+                    name, exception.getMessage()), exception);
+        }
+    }
+
+
+    /**
+     * Locates and compiles the accessor of property <em>name</em> for <em>type</em> with granted access.
+     *
+     * @param name   the property name
+     * @param type   the class declaring the property
+     * @param access private access to <em>type</em>
+     * @param lookup the access granted by the caller
+     * @return a new accessor
+     */
+    private static PropertyAccessor resolve(final String name, final Class<?> type,
+                                            final MethodHandles.Lookup access, final MethodHandles.Lookup lookup) {
+        try {
+            if (type.isRecord()) {
+                for (final RecordComponent component : type.getRecordComponents()) {
+                    if (component.getName().equals(name)) {
+                        final Method read = component.getAccessor();
+
+                        return compile(type, name, read, read.getReturnType(), access.unreflect(read), access);
+                    }
+                }
+            }
+
+            final Field field = locateField(type, name);
+
+            if (field != null) {
+                final Class<?> declaring = field.getDeclaringClass();
+                final MethodHandles.Lookup owner = declaring == type ? access : access(name, declaring, lookup);
+                return compile(type, name, null, field.getType(), owner.unreflectGetter(field), owner);
+            }
+
+            final Method read = locateDeclaredMethod(type, name);
+
+            if (read != null) {
+                final Class<?> declaring = read.getDeclaringClass();
+                final MethodHandles.Lookup owner = declaring == type ? access : access(name, declaring, lookup);
+
+                return compile(type, name, read, read.getReturnType(), owner.unreflect(read), owner);
+            }
+        }
+        catch (ReflectiveOperationException exception) {
+            throw new IllegalArgumentException(String.format("Problem accessing property '%s': %s",
+                    name, exception.getMessage()), exception);
+        }
+
+        throw new IllegalArgumentException(String.format("Cannot find instance with property '%s'", name));
+    }
+
+
+    /**
+     * Obtains private access to <em>type</em> from the access granted by a caller.
+     *
+     * @param name   the property being resolved, for error messages
+     * @param type   the class to access
+     * @param lookup the access granted by the caller
+     * @return a lookup with private access to <em>type</em>
+     * @throws IllegalArgumentException if <em>lookup</em> does not grant private access to <em>type</em>
+     */
+    private static MethodHandles.Lookup access(final String name, final Class<?> type,
+                                               final MethodHandles.Lookup lookup) {
+        try {
+            return MethodHandles.privateLookupIn(type, lookup);
+        }
+        catch (IllegalAccessException exception) {
+            throw new IllegalArgumentException(String.format("Problem accessing property '%s': %s",
+                    name, exception.getMessage()), exception);
+        }
+    }
+
+
+    /**
+     * Resolves the accessor of a dotted property path for <em>type</em>. Every segment is resolved against the
+     * declared type of the previous one; if that type does not have the property, the segment (and every following
+     * one) is resolved against the class of the value at run time instead.
+     *
+     * @param key    the registry key of the path
+     * @param type   the class the path starts from
+     * @param lookup the access granted by the caller, or <code>null</code> to use public read methods only
+     * @return a new accessor
+     */
+    private static PropertyAccessor resolvePath(final String key, final Class<?> type,
+                                                final MethodHandles.Lookup lookup) {
+        final boolean nullSafe = key.startsWith(NULL_SAFE);
+        final String path = nullSafe ? key.substring(NULL_SAFE.length()) : key;
+        final String[] segments = path.split("\\.", -1);
+
+        for (final String segment : segments) {
+            if (segment.isEmpty()) {
+                throw new IllegalArgumentException(String.format("Invalid property path '%s'", path));
+            }
+        }
+
+        final PropertyAccessor[] steps = new PropertyAccessor[segments.length];
+        Class<?> declared = type;
+
+        for (int i = 0; i < segments.length && declared != null; i++) {
+            if (declared.isPrimitive()) {
+                throw new IllegalArgumentException(String.format("Problem accessing property '%s': %s",
+                        path, segments[i - 1] + " is of primitive type " + declared.getName()));
             }
-        } catch (NoSuchMethodException e) {
+
+            if (i > 0 && !hasProperty(declared, segments[i], lookup)) {
+                // only known at run time
+                break;
+            }
+
+            steps[i] = getAccessor(segments[i], declared, lookup);
+            declared = steps[i].getType();
+        }
+
+        return PropertyPath.compile(type, path, nullSafe, segments, steps);
+    }
+
+
+    /**
+     * Locates the read method of property <em>name</em> in <em>type</em>. The traditional JavaBean getter is tried
+     * first, then the record accessor and finally the read method reported by the class' {@link BeanInfo}.
+     *
+     * @param type the class to query
+     * @param name the property name
+     * @return the read method or <code>null</code> if there is none
+     */
+    private static Method locateMethod(final Class<?> type, final String name) {
+        // First try the traditional JavaBean getter pattern
+        final String getterName = "get" + name.substring(0, 1).toUpperCase() + name.substring(1);
+
+        try {
+            return type.getMethod(getterName);
+        }
+        catch (NoSuchMethodException e) {
+            // If traditional getter isn't found, try Record pattern
+        }
+
+        try {
+            return type.getMethod(name);
+        }
+        catch (NoSuchMethodException e) {
+            // finally ask the BeanInfo
+        }
+
+        try {
+            return locateDescriptorMethod(type, name);
+        }
+        catch (IntrospectionException exception) {
             return null;
         }
     }
 
-    private static Method locateMethod(final Object instance, final String name)
+
+    /**
+     * Determines if <em>type</em> declares property <em>name</em>.
+     *
+     * @param type   the class to query
+     * @param name   the property name
+     * @param lookup the access granted by the caller, or <code>null</code> if only public read methods count
+     * @return <code>true</code> if the property can be resolved
+     */
+    private static boolean hasProperty(final Class<?> type, final String name, final MethodHandles.Lookup lookup) {
+        if (lookup == null) {
+            return locateMethod(type, name) != null;
+        }
+
+        if (type.isRecord()) {
+            for (final RecordComponent component : type.getRecordComponents()) {
+                if (component.getName().equals(name)) {
+                    return true;
+                }
+            }
+        }
+
+        return locateField(type, name) != null || locateDeclaredMethod(type, name) != null;
+    }
+
+
+    /**
+     * Locates the instance field <em>name</em> declared by <em>type</em> or its closest superclass declaring it.
+     *
+     * @param type the class to query
+     * @param name the field name
+     * @return the field, or <code>null</code> if there is none
+     */
+    private static Field locateField(final Class<?> type, final String name) {
+        for (Class<?> declaring = type; declaring != null; declaring = declaring.getSuperclass()) {
+            try {
+                final Field field = declaring.getDeclaredField(name);
+
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    return field;
+                }
+            }
+            catch (NoSuchFieldException exception) {
+                // try the superclass
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Locates a read method of property <em>name</em> of any visibility, declared by <em>type</em> or a superclass:
+     * <code>getX()</code>, then <code>x()</code>, then <code>boolean isX()</code>.
+     *
+     * @param type the class to query
+     * @param name the property name
+     * @return the read method, or <code>null</code> if there is none
+     */
+    private static Method locateDeclaredMethod(final Class<?> type, final String name) {
+        final String capitalized = name.substring(0, 1).toUpperCase() + name.substring(1);
+
+        for (final String candidate : new String[]{"get" + capitalized, name, "is" + capitalized}) {
+            for (Class<?> declaring = type; declaring != null; declaring = declaring.getSuperclass()) {
+                try {
+                    final Method method = declaring.getDeclaredMethod(candidate);
+
+                    if (!Modifier.isStatic(method.getModifiers()) && method.getReturnType() != void.class
+                            && (!candidate.startsWith("is") || candidate.equals(name)
+                            || method.getReturnType() == boolean.class)) {
+                        return method;
+                    }
+                }
+                catch (NoSuchMethodException exception) {
+                    // try the superclass
+                }
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Searches the {@link PropertyDescriptor}s of <em>type</em> for the read method of property <em>name</em>.
+     *
+     * @param type the class to query
+     * @param name the property name
+     * @return the read method or <code>null</code> if there is none
+     * @throws IntrospectionException if the class cannot be introspected
+     */
+    private static Method locateDescriptorMethod(final Class<?> type, final String name)
             throws IntrospectionException {
         // Get the BeanInfo, either from BeanInfo class or reflection
-        final BeanInfo info = Introspector.getBeanInfo(instance.getClass(), Introspector.USE_ALL_BEANINFO);
+        final BeanInfo info = Introspector.getBeanInfo(type, Introspector.USE_ALL_BEANINFO);
 
         // Lookup all of this bean's properties
         final PropertyDescriptor pds[] = info.getPropertyDescriptors();
@@ -119,12 +567,177 @@ public final class BeanPropertyUtil {
         // Search through the list for the one with 'name'
         for (final PropertyDescriptor pd : pds) {
             if (name.equals(pd.getName())) {
-                final Method method = pd.getReadMethod();
-                map.put(name, method);
-                break;
+                return pd.getReadMethod();
             }
         }
 
-        return map.get(name);
+        return null;
+    }
+
+
+    /**
+     * Compiles <em>read</em> into an accessor: a function returning the (boxed) value and, for primitive properties,
+     * a {@link ToIntFunction}, {@link ToLongFunction} or {@link ToDoubleFunction} returning it without boxing.
+     *
+     * @param type the class the accessor is resolved for
+     * @param name the property name
+     * @param read the read method
+     * @return the compiled accessor
+     * @throws ReflectiveOperationException if the method cannot be accessed
+     */
+    private static PropertyAccessor compile(final Class<?> type, final String name, final Method read)
+            throws ReflectiveOperationException {
+        return compile(type, name, read, read.getReturnType(), LOOKUP.unreflect(read), LOOKUP);
+    }
+
+
+    /**
+     * Compiles <em>handle</em> into an accessor of a value of type <em>valueType</em>.
+     *
+     * @param type      the class the accessor is resolved for
+     * @param name      the property name
+     * @param read      the read method, or <code>null</code> if the value is read from a field
+     * @param valueType the declared type of the value
+     * @param handle    reads the value from an instance
+     * @param caller    the lookup <em>handle</em> was obtained from
+     * @return the compiled accessor
+     */
+    @SuppressWarnings("unchecked")
+    private static PropertyAccessor compile(final Class<?> type, final String name, final Method read,
+                                            final Class<?> valueType, final MethodHandle handle,
+                                            final MethodHandles.Lookup caller) {
+        final Function<Object, Object> getter = compile(handle, Function.class, "apply", Object.class, caller);
+
+        switch (PropertyAccessor.kindOf(valueType)) {
+            case INT:
+                return new PropertyAccessor(type, name, read, valueType, getter,
+                        compile(handle, ToIntFunction.class, "applyAsInt", int.class, caller), null, null);
+            case LONG:
+                return new PropertyAccessor(type, name, read, valueType, getter,
+                        null, compile(handle, ToLongFunction.class, "applyAsLong", long.class, caller), null);
+            case DOUBLE:
+                return new PropertyAccessor(type, name, read, valueType, getter,
+                        null, null, compile(handle, ToDoubleFunction.class, "applyAsDouble", double.class, caller));
+            default:
+                return new PropertyAccessor(type, name, read, valueType, getter, null, null, null);
+        }
+    }
+
+
+    /**
+     * Compiles <em>handle</em> into an instance of the functional interface <em>type</em>, whose single abstract
+     * method <em>method</em> takes an <code>Object</code> and returns <em>returnType</em>. When the declaring class is
+     * visible from <em>caller</em>, the function is spun with {@link LambdaMetafactory} so the JIT can inline it
+     * like a direct call; otherwise, or if <em>handle</em> does not read a method (as for a field), it falls back to
+     * invoking the {@link MethodHandle}.
+     *
+     * @param handle     the read method handle
+     * @param type       the functional interface
+     * @param method     the name of its abstract method
+     * @param returnType the return type of its abstract method
+     * @param caller     the lookup <em>handle</em> was obtained from
+     * @param <F>        the functional interface type
+     * @return the compiled read method
+     */
+    @SuppressWarnings("unchecked")
+    private static <F> F compile(final MethodHandle handle, final Class<?> type, final String method,
+                                 final Class<?> returnType, final MethodHandles.Lookup caller) {
+        final Class<?> declaring = handle.type().parameterType(0);
+
+        if (caller != LOOKUP || isVisible(declaring) && isVisible(handle.type().returnType())) {
+            try {
+                final CallSite site = LambdaMetafactory.metafactory(caller, method,
+                        MethodType.methodType(type),
+                        MethodType.methodType(returnType, Object.class),
+                        handle,
+                        MethodType.methodType(returnType.isPrimitive() ? returnType : handle.type().wrap().returnType(),
+                                declaring));
+
+                return (F) site.getTarget().invoke();
+            }
+            catch (Throwable ignored) {
+                // fall through to the method handle
+            }
+        }
+
+        final MethodHandle generic = handle.asType(MethodType.methodType(returnType, Object.class));
+
+        if (returnType == int.class) {
+            return (F) (ToIntFunction<Object>) instance -> {
+                try {
+                    return (int) generic.invokeExact(instance);
+                }
+                catch (Throwable throwable) {
+                    throw rethrow(throwable);
+                }
+            };
+        } else if (returnType == long.class) {
+            return (F) (ToLongFunction<Object>) instance -> {
+                try {
+                    return (long) generic.invokeExact(instance);
+                }
+                catch (Throwable throwable) {
+                    throw rethrow(throwable);
+                }
+            };
+        } else if (returnType == double.class) {
+            return (F) (ToDoubleFunction<Object>) instance -> {
+                try {
+                    return (double) generic.invokeExact(instance);
+                }
+                catch (Throwable throwable) {
+                    throw rethrow(throwable);
+                }
+            };
+        }
+
+        return (F) (Function<Object, Object>) instance -> {
+            try {
+                return generic.invokeExact(instance);
+            }
+            catch (Throwable throwable) {
+                throw rethrow(throwable);
+            }
+        };
+    }
+
+
+    /**
+     * Rethrows unchecked exceptions thrown by a read method and wraps checked ones.
+     *
+     * @param throwable the thrown exception
+     * @return never returns normally
+     */
+    private static RuntimeException rethrow(final Throwable throwable) {
+        if (throwable instanceof RuntimeException) {
+            throw (RuntimeException) throwable;
+        }
+
+        if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+
+        return new IllegalArgumentException(throwable.getMessage(), throwable);
+    }
+
+
+    /**
+     * Determines if <em>type</em> can be resolved by name from this class' loader, which is where spun accessor
+     * classes are defined.
+     *
+     * @param type the type to check
+     * @return <code>true</code> if the type is visible
+     */
+    private static boolean isVisible(final Class<?> type) {
+        if (type.isPrimitive()) {
+            return true;
+        }
+
+        try {
+            return Class.forName(type.getName(), false, BeanPropertyUtil.class.getClassLoader()) == type;
+        }
+        catch (ClassNotFoundException | LinkageError exception) {
+            return false;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,241 @@
+package com.acidblue.beans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Keeps the <em>k</em> smallest (or largest) elements offered to it.
+ * <p/>
+ * The elements are held in a binary heap of at most <em>k</em> entries whose
+ * root is the element that would be dropped next, so each offer costs
+ * O(log k). The heap starts small and grows as elements are kept, so memory
+ * stays O(min(k, n)) for <em>n</em> elements offered, however large
+ * <em>k</em> is. Every element is tagged with the order in
+ * which it was offered, and ties are broken on it the same way a stable sort
+ * would: the result is exactly the first (or last) <em>k</em> elements of the
+ * stably sorted input.
+ *
+ * @see SortUtil#topK(Iterable, int, String, String...)
+ * @see SortUtil#bottomK(Iterable, int, String, String...)
+ */
+final class BoundedHeap<E> {
+
+    /**
+     * The length of the heap arrays before any element is kept.
+     */
+    private static final int INITIAL_LENGTH = 16;
+
+    /**
+     * The comparator ordering the elements.
+     */
+    private final Comparator<? super E> comparator;
+
+    /**
+     * <code>1</code> to keep the smallest elements, <code>-1</code> to keep the largest.
+     */
+    private final int direction;
+
+    /**
+     * The number of elements to keep.
+     */
+    private final int capacity;
+
+    /**
+     * The heap of elements.
+     */
+    private Object[] elements;
+
+    /**
+     * The offer sequence of each element in {@link #elements}.
+     */
+    private long[] sequences;
+
+    /**
+     * The number of elements in the heap.
+     */
+    private int size;
+
+    /**
+     * The sequence of the next offered element.
+     */
+    private long sequence;
+
+
+    /**
+     * Creates a new heap.
+     *
+     * @param capacity    the number of elements to keep
+     * @param comparator  the comparator ordering the elements
+     * @param keepLargest <code>true</code> to keep the largest elements, <code>false</code> for the smallest
+     */
+    BoundedHeap(final int capacity, final Comparator<? super E> comparator, final boolean keepLargest) {
+
+        if (capacity < 0) {
+            throw new IllegalArgumentException("k cannot be negative: " + capacity);
+        }
+
+        if (comparator == null) {
+            throw new NullPointerException("comparator was null");
+        }
+
+        this.comparator = comparator;
+        this.direction = keepLargest ? -1 : 1;
+        this.capacity = capacity;
+        this.elements = new Object[Math.min(capacity, INITIAL_LENGTH)];
+        this.sequences = new long[elements.length];
+    }
+
+
+    /**
+     * Offers an element, keeping it if it is among the <em>k</em> smallest (or largest) seen so far.
+     *
+     * @param element the element
+     */
+    @SuppressWarnings("unchecked")
+    void offer(final E element) {
+        final long seq = sequence++;
+
+        if (size < capacity) {
+            if (size == elements.length) {
+                grow();
+            }
+
+            elements[size] = element;
+            sequences[size] = seq;
+            siftUp(size++);
+        } else if (size > 0 && order(element, seq, (E) elements[0], sequences[0]) < 0) {
+            elements[0] = element;
+            sequences[0] = seq;
+            siftDown(0);
+        }
+    }
+
+
+    /**
+     * Doubles the length of the heap arrays, up to the capacity.
+     */
+    private void grow() {
+        final int length = (int) Math.min(capacity, Math.max(2L * elements.length, INITIAL_LENGTH));
+
+        elements = Arrays.copyOf(elements, length);
+        sequences = Arrays.copyOf(sequences, length);
+    }
+
+
+    /**
+     * Empties the heap, returning the kept elements in ascending order.
+     *
+     * @return the kept elements
+     */
+    @SuppressWarnings("unchecked")
+    List<E> drain() {
+        final Object[] sorted = new Object[size];
+        final boolean descending = direction > 0;
+
+        for (int i = 0, count = size; i < count; i++) {
+            sorted[descending ? count - 1 - i : i] = elements[0];
+
+            size--;
+            elements[0] = elements[size];
+            sequences[0] = sequences[size];
+            elements[size] = null;
+            siftDown(0);
+        }
+
+        return new ArrayList<>((List<E>) Arrays.asList(sorted));
+    }
+
+
+    /**
+     * Compares two entries by element and then by sequence, in the direction of the heap: the result is positive
+     * if the first entry should be dropped before the second.
+     *
+     * @param e1   the first element
+     * @param seq1 the sequence of the first element
+     * @param e2   the second element
+     * @param seq2 the sequence of the second element
+     * @return the result of the comparison
+     */
+    private int order(final E e1, final long seq1, final E e2, final long seq2) {
+        final int result = comparator.compare(e1, e2);
+
+        return direction * (result != 0 ? result : Long.compare(seq1, seq2));
+    }
+
+
+    /**
+     * Compares the entries at index <em>i</em> and <em>j</em> of the heap.
+     *
+     * @param i the index of the first entry
+     * @param j the index of the second entry
+     * @return the result of the comparison
+     */
+    @SuppressWarnings("unchecked")
+    private int order(final int i, final int j) {
+        return order((E) elements[i], sequences[i], (E) elements[j], sequences[j]);
+    }
+
+
+    /**
+     * Moves the entry at <em>index</em> up until its parent is to be dropped before it.
+     *
+     * @param index the index of the entry
+     */
+    private void siftUp(int index) {
+        while (index > 0) {
+            final int parent = (index - 1) >>> 1;
+
+            if (order(parent, index) >= 0) {
+                return;
+            }
+
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+
+    /**
+     * Moves the entry at <em>index</em> down until it is to be dropped before its children.
+     *
+     * @param index the index of the entry
+     */
+    private void siftDown(int index) {
+        while (true) {
+            final int left = (index << 1) + 1;
+
+            if (left >= size) {
+                return;
+            }
+
+            final int right = left + 1;
+            final int child = right < size && order(right, left) > 0 ? right : left;
+
+            if (order(index, child) >= 0) {
+                return;
+            }
+
+            swap(index, child);
+            index = child;
+        }
+    }
+
+
+    /**
+     * Swaps the entries at index <em>i</em> and <em>j</em>.
+     *
+     * @param i the index of the first entry
+     * @param j the index of the second entry
+     */
+    private void swap(final int i, final int j) {
+        final Object element = elements[i];
+        final long seq = sequences[i];
+
+        elements[i] = elements[j];
+        sequences[i] = sequences[j];
+        elements[j] = element;
+        sequences[j] = seq;
+    }
+}
@@ -0,0 +1,121 @@
+package com.acidblue.beans;
+
+/**
+ * A snapshot of the statistics of a cache.
+ *
+ * @see ComparatorFactory#specCacheStatistics()
+ */
+public final class CacheStatistics {
+
+    /**
+     * The number of lookups that found a cached value.
+     */
+    private final long hits;
+
+    /**
+     * The number of lookups that had to compute a value.
+     */
+    private final long misses;
+
+    /**
+     * The number of values evicted to keep the cache within its capacity.
+     */
+    private final long evictions;
+
+    /**
+     * The number of values cached.
+     */
+    private final int size;
+
+    /**
+     * The maximum number of values cached.
+     */
+    private final int capacity;
+
+
+    /**
+     * Creates a new snapshot.
+     *
+     * @param hits      the number of lookups that found a cached value
+     * @param misses    the number of lookups that had to compute a value
+     * @param evictions the number of values evicted
+     * @param size      the number of values cached
+     * @param capacity  the maximum number of values cached
+     */
+    CacheStatistics(final long hits, final long misses, final long evictions, final int size, final int capacity) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+        this.capacity = capacity;
+    }
+
+
+    /**
+     * Returns the number of lookups that found a cached value.
+     *
+     * @return the hit count
+     */
+    public long getHits() {
+        return hits;
+    }
+
+
+    /**
+     * Returns the number of lookups that had to compute a value.
+     *
+     * @return the miss count
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+
+    /**
+     * Returns the number of values evicted to keep the cache within its capacity.
+     *
+     * @return the eviction count
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+
+    /**
+     * Returns the number of values cached.
+     *
+     * @return the size of the cache
+     */
+    public int getSize() {
+        return size;
+    }
+
+
+    /**
+     * Returns the maximum number of values cached.
+     *
+     * @return the capacity of the cache
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+
+    /**
+     * Returns the ratio of hits to lookups.
+     *
+     * @return the hit rate, or <code>0</code> if there have been no lookups
+     */
+    public double getHitRate() {
+        final long lookups = hits + misses;
+
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d, misses=%d, evictions=%d, size=%d/%d",
+                hits, misses, evictions, size, capacity);
+    }
+}
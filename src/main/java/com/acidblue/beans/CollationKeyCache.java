@@ -0,0 +1,133 @@
+package com.acidblue.beans;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Comparator;
+
+/**
+ * Compares strings by a {@link Collator}, remembering the
+ * {@link CollationKey} of each string it has seen.
+ * <p/>
+ * Collating two strings from scratch costs several times more than
+ * {@link String#compareTo(String)}. A collation key is computed once per
+ * string, after which comparing keys is a plain comparison of bytes. Keeping
+ * the keys in this cache lets them be reused by every comparison of a sort
+ * and across repeated sorts of the same data:
+ * <pre>
+ *      CollationKeyCache names = new CollationKeyCache(Collator.getInstance(Locale.FRENCH), 10000);
+ * <p/>
+ *      SortUtil.collatedSort(people, names, "lastName", "firstName");
+ * <p/>
+ *      // or as the comparator of a property
+ *      people.sort(ComparatorFactory.create("lastName", names));
+ * </pre>
+ * <p/>
+ * The cache holds at most a fixed number of keys, evicting one of the least
+ * recently used when full, and can be shared by several threads; looking up
+ * a cached key takes no lock.
+ * <p/>
+ * Used as a comparator, the cache needs room for every distinct string being
+ * compared: a sort looks up two keys per comparison, and once the strings
+ * outnumber the capacity, keys are evicted and collated again many times
+ * over. Prefer {@link SortUtil#collatedSort(java.util.List, CollationKeyCache,
+ * String, String...)}, which looks up the key of each element once before
+ * sorting, whatever the capacity.
+ *
+ * @see SortUtil#collatedSort(java.util.List, Collator, String, String...)
+ */
+public final class CollationKeyCache implements Comparator<String> {
+
+    /**
+     * The collator the keys are computed by.
+     */
+    private final Collator collator;
+
+    /**
+     * The keys, by string.
+     */
+    private final LruCache<String, CollationKey> keys;
+
+
+    /**
+     * Creates a new cache.
+     *
+     * @param collator the collator to compare strings by; it must not be changed afterwards
+     * @param capacity the maximum number of keys kept
+     */
+    public CollationKeyCache(final Collator collator, final int capacity) {
+
+        if (collator == null) {
+            throw new NullPointerException("collator was null");
+        }
+
+        this.collator = (Collator) collator.clone();
+        this.keys = new LruCache<>(capacity);
+    }
+
+
+    /**
+     * Returns the collation key of <em>string</em>.
+     *
+     * @param string the string
+     * @return its collation key
+     */
+    public CollationKey getCollationKey(final String string) {
+        if (string == null) {
+            throw new NullPointerException("string was null");
+        }
+
+        return keys.get(string, this::collate);
+    }
+
+
+    /**
+     * Compares two strings by their collation keys. <code>null</code> is
+     * ordered before any string.
+     * <p/>
+     * Both keys are looked up on every call, so the capacity should cover all
+     * the strings compared.
+     *
+     * @param s1 the string to compare
+     * @param s2 the string to compare to
+     * @return the result of the comparison
+     */
+    @Override
+    public int compare(final String s1, final String s2) {
+        if (s1 == null || s2 == null) {
+            return s1 == null ? (s2 == null ? 0 : -1) : 1;
+        }
+
+        return getCollationKey(s1).compareTo(getCollationKey(s2));
+    }
+
+
+    /**
+     * Returns the statistics of this cache.
+     *
+     * @return a snapshot of the statistics
+     */
+    public CacheStatistics statistics() {
+        return keys.statistics();
+    }
+
+
+    /**
+     * Removes all keys.
+     */
+    public void clear() {
+        keys.clear();
+    }
+
+
+    /**
+     * Computes a collation key.
+     *
+     * @param string the string
+     * @return its collation key
+     */
+    private CollationKey collate(final String string) {
+        synchronized (collator) {
+            return collator.getCollationKey(string);
+        }
+    }
+}
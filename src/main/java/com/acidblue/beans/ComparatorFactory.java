@@ -1,6 +1,13 @@
 package com.acidblue.beans;
 
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 /**
  * A simple factory for creating Comparators for beans based on their
@@ -18,6 +25,59 @@ public final class ComparatorFactory {
     private ComparatorFactory() {}
 
 
+    /**
+     * The maximum number of comparators compiled from sort specifications kept for each bean class.
+     */
+    private static final int SPEC_CACHE_CAPACITY = 256;
+
+
+    /**
+     * The caches of {@link #SPEC_CACHES} in use, held weakly so that the statistics can be summed without keeping
+     * the caches, and through their comparators the bean classes, from being collected.
+     */
+    private static final Set<LruCache<String, Comparator<?>>> LIVE_SPEC_CACHES
+            = Collections.newSetFromMap(new WeakHashMap<LruCache<String, Comparator<?>>, Boolean>());
+
+
+    /**
+     * The comparators compiled from sort specifications for each bean class, by normalized specification. The
+     * caches belong to the classes, so they do not keep a class, or its class loader, from being unloaded.
+     */
+    private static final ClassValue<LruCache<String, Comparator<?>>> SPEC_CACHES
+            = new ClassValue<LruCache<String, Comparator<?>>>() {
+        @Override
+        protected LruCache<String, Comparator<?>> computeValue(final Class<?> type) {
+            final LruCache<String, Comparator<?>> cache = new LruCache<>(SPEC_CACHE_CAPACITY);
+
+            synchronized (LIVE_SPEC_CACHES) {
+                LIVE_SPEC_CACHES.add(cache);
+            }
+
+            return cache;
+        }
+    };
+
+
+    /**
+     * The comparator providers generated at compile time for each bean class, found with {@link ServiceLoader}.
+     */
+    private static final ClassValue<ComparatorProvider[]> PROVIDERS = new ClassValue<ComparatorProvider[]>() {
+        @Override
+        protected ComparatorProvider[] computeValue(final Class<?> type) {
+            final List<ComparatorProvider> providers = new ArrayList<>();
+
+            for (final ComparatorProvider provider
+                    : ServiceLoader.load(ComparatorProvider.class, type.getClassLoader())) {
+                if (provider.getType() == type) {
+                    providers.add(provider);
+                }
+            }
+
+            return providers.toArray(new ComparatorProvider[0]);
+        }
+    };
+
+
     /**
      * Returns a comparator for a specified bean property.
      *
@@ -33,6 +93,56 @@ public final class ComparatorFactory {
     }
 
 
+    /**
+     * Returns a comparator for a specified bean property or dotted property path, such as
+     * <code>customer.address.city</code>.
+     *
+     * @param propertyName property name or path the comparator will compare to
+     * @param nullSafe     if <code>true</code>, a <code>null</code> part way along the path makes the property
+     *                     <code>null</code>, and <code>null</code> properties are ordered first; otherwise it is
+     *                     reported as an <code>IllegalArgumentException</code>
+     * @return A comparator instance
+     * @see BeanPropertyComparator#BeanPropertyComparator(String, Comparator, boolean)
+     */
+    public static <T> Comparator<T> create(final String propertyName, final boolean nullSafe) {
+        if (propertyName == null) {
+            throw new IllegalArgumentException("propertyName cannot be null");
+        }
+
+        return new BeanPropertyComparator<T>(propertyName, null, nullSafe);
+    }
+
+
+    /**
+     * Returns a comparator for a specified <code>String</code> bean property, comparing values by the collation
+     * keys of <em>collation</em>. Each distinct value is collated once and its key reused by later comparisons,
+     * including those of later sorts sharing the same cache.
+     * <p/>
+     * This holds only while the cache can hold every distinct value compared; beyond its capacity, keys are
+     * evicted and collated again on later comparisons. To sort a list, prefer
+     * {@link SortUtil#collatedSort(List, CollationKeyCache, String, String...)}, which reads the key of each
+     * element once before sorting.
+     *
+     * @param propertyName property name the comparator will compare to
+     * @param collation    the collation keys to compare values by
+     * @param <T>          the bean type
+     * @return A comparator instance
+     * @see SortUtil#collatedSort(List, CollationKeyCache, String, String...)
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Comparator<T> create(final String propertyName, final CollationKeyCache collation) {
+        if (propertyName == null) {
+            throw new IllegalArgumentException("propertyName cannot be null");
+        }
+
+        if (collation == null) {
+            throw new NullPointerException("collation was null");
+        }
+
+        return new BeanPropertyComparator<T>(propertyName, (Comparator<T>) (Comparator<?>) collation);
+    }
+
+
     /**
      * Returns a comparator that will compare properties based on two inputs.
      *
@@ -51,20 +161,203 @@ public final class ComparatorFactory {
             throw new NullPointerException("second was null");
         }
 
-        Comparator<T> temp = new CompositeComparator<T>(
-                new BeanPropertyComparator<T>(first),
-                new BeanPropertyComparator<T>(next));
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final Comparator<T>[] others = new Comparator[rest.length];
 
-        for (final String str : rest) {
-            temp = new CompositeComparator<T>(temp, new BeanPropertyComparator<T>(str));
+        for (int i = 0; i < rest.length; i++) {
+            others[i] = new BeanPropertyComparator<T>(rest[i]);
         }
 
-        return temp;
+        return new CompositeComparator<T>(CompositeComparator.flatten(
+                new BeanPropertyComparator<T>(first), new BeanPropertyComparator<T>(next), others));
     }
 
+
+    /**
+     * Returns a comparator that compares the given properties in order, reading them with the access granted by
+     * <em>lookup</em>. Properties are read from record components or fields directly, whatever their visibility, so
+     * beans need neither be public nor have public getters.
+     *
+     * @param lookup the access granted by the caller, typically <code>MethodHandles.lookup()</code>
+     * @param first  the first property to sort by
+     * @param rest   any other properties to sort by (order is preserved)
+     * @param <T>    the bean type
+     * @return a comparator instance
+     * @see BeanPropertyComparator#BeanPropertyComparator(String, Comparator, boolean, MethodHandles.Lookup)
+     */
+    public static <T> Comparator<T> create(final MethodHandles.Lookup lookup, final String first,
+                                           final String... rest) {
+        if (lookup == null) {
+            throw new NullPointerException("lookup was null");
+        }
+
+        if (first == null) {
+            throw new NullPointerException("first was null");
+        }
+
+        final Comparator<T> head = new BeanPropertyComparator<T>(first, null, false, lookup);
+
+        if (rest.length == 0) {
+            return head;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final Comparator<T>[] others = new Comparator[rest.length - 1];
+
+        for (int i = 1; i < rest.length; i++) {
+            others[i - 1] = new BeanPropertyComparator<T>(rest[i], null, false, lookup);
+        }
+
+        return new CompositeComparator<T>(CompositeComparator.flatten(
+                head, new BeanPropertyComparator<T>(rest[0], null, false, lookup), others));
+    }
+
+
+    /**
+     * Returns a comparator specialized for instances of <em>type</em> that compares the given properties in order.
+     * <p/>
+     * Unlike {@link #create(String, String, String...)} the getters are resolved up front and the comparator is
+     * generated as a class of its own, so comparing costs about as much as a hand-written
+     * {@link java.util.Comparator}. Property values are compared the same way {@link BeanPropertyComparator}
+     * compares them. Comparators are cached, so repeated calls with the same arguments return the same instance.
+     * <p/>
+     * If a comparator for these properties was generated at compile time from a {@link SortableBy} annotation of
+     * <em>type</em>, it is returned instead, and nothing is generated or introspected at run time.
+     *
+     * @param type  the class of the beans to compare; every compared bean must be an instance of it
+     * @param first the first property to sort by
+     * @param rest  any other properties to sort by (order is preserved)
+     * @param <T>   the bean type
+     * @return a comparator instance
+     * @throws IllegalArgumentException if a property cannot be found or accessed in <em>type</em>
+     */
+    public static <T> Comparator<T> create(final Class<T> type, final String first, final String... rest) {
+        if (type == null) {
+            throw new NullPointerException("type was null");
+        }
+
+        if (first == null) {
+            throw new NullPointerException("first was null");
+        }
+
+        final String[] properties = new String[rest.length + 1];
+        properties[0] = first;
+
+        for (int i = 0; i < rest.length; i++) {
+            if (rest[i] == null) {
+                throw new NullPointerException("rest contained null");
+            }
+
+            properties[i + 1] = rest[i];
+        }
+
+        for (final ComparatorProvider provider : PROVIDERS.get(type)) {
+            @SuppressWarnings("unchecked")
+            final Comparator<T> comparator = (Comparator<T>) provider.getComparator(properties);
+
+            if (comparator != null) {
+                return comparator;
+            }
+        }
+
+        return ComparatorGenerator.generate(type, properties);
+    }
+
+    /**
+     * Returns a comparator for instances of <em>type</em> ordering them as the sort specification <em>spec</em>
+     * describes, for example <code>lastName desc nullsFirst, age asc</code>.
+     * <p/>
+     * The properties are resolved against <em>type</em> up front. Compiled comparators are kept in a bounded
+     * cache for each bean class, keyed by normalized specification, so specifications that differ only in
+     * whitespace, keyword case or explicit defaults share the same instance; one of the least recently used
+     * comparators of a class is evicted when its cache is full. The caches do not keep bean classes from being
+     * unloaded.
+     *
+     * @param type the class of the beans to compare; every compared bean must be an instance of it
+     * @param spec the sort specification
+     * @param <T>  the bean type
+     * @return a comparator instance
+     * @throws IllegalArgumentException if <em>spec</em> is not valid, or a property cannot be found in
+     *                                  <em>type</em>
+     * @see SortProperty#parse(String)
+     * @see #specCacheStatistics()
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Comparator<T> parse(final Class<T> type, final String spec) {
+        if (type == null) {
+            throw new NullPointerException("type was null");
+        }
+
+        final List<SortProperty> properties = SortProperty.parse(spec);
+        final StringBuilder normalized = new StringBuilder();
+
+        for (final SortProperty property : properties) {
+            if (normalized.length() > 0) {
+                normalized.append(", ");
+            }
+
+            normalized.append(property);
+        }
+
+        return (Comparator<T>) SPEC_CACHES.get(type).get(normalized.toString(), key -> compile(type, properties));
+    }
+
+
+    /**
+     * Returns the statistics of the caches of comparators compiled by {@link #parse(Class, String)}, summed over
+     * the bean classes still loaded. The capacity is the sum of the capacities of their caches.
+     *
+     * @return a snapshot of the statistics
+     */
+    public static CacheStatistics specCacheStatistics() {
+        long hits = 0;
+        long misses = 0;
+        long evictions = 0;
+        int size = 0;
+        int caches = 0;
+
+        synchronized (LIVE_SPEC_CACHES) {
+            for (final LruCache<String, Comparator<?>> cache : LIVE_SPEC_CACHES) {
+                final CacheStatistics statistics = cache.statistics();
+
+                hits += statistics.getHits();
+                misses += statistics.getMisses();
+                evictions += statistics.getEvictions();
+                size += statistics.getSize();
+                caches++;
+            }
+        }
+
+        return new CacheStatistics(hits, misses, evictions, size, caches * SPEC_CACHE_CAPACITY);
+    }
+
+
+    /**
+     * Builds the comparator of a parsed sort specification.
+     *
+     * @param type       the bean class
+     * @param properties the properties, most significant first
+     * @param <T>        the bean type
+     * @return a comparator instance
+     */
+    private static <T> Comparator<T> compile(final Class<T> type, final List<SortProperty> properties) {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final Comparator<T>[] comparators = new Comparator[properties.size()];
+
+        for (int i = 0; i < comparators.length; i++) {
+            comparators[i] = new SortPropertyComparator<T>(type, properties.get(i));
+        }
+
+        return comparators.length == 1 ? comparators[0] : new CompositeComparator<T>(comparators);
+    }
+
+
     /**
      * A method which combines comparators and returns a composite of all the comparators in the order
      * they are provided. At least two comparator must be provided.
+     * <p/>
+     * Any {@link CompositeComparator} given, other than an instance of a subclass, is flattened into the result,
+     * so the returned comparator compares with all comparators in a single loop.
      *
      * @param first the first comparator
      * @param next  the second comparator
@@ -73,6 +366,7 @@ public final class ComparatorFactory {
      * @return A new composite comparator
      */
     @SafeVarargs
+    @SuppressWarnings("varargs")
     public static <T> Comparator<T> create(final Comparator<T> first, final Comparator<T> next,
                                            final Comparator<T>... rest) {
 
@@ -84,12 +378,6 @@ public final class ComparatorFactory {
             throw new NullPointerException("next was null");
         }
 
-        Comparator<T> temp = new CompositeComparator<T>(first, next);
-
-        for (final Comparator<T> comp : rest) {
-            temp = new CompositeComparator<T>(temp, comp);
-        }
-
-        return temp;
+        return new CompositeComparator<T>(CompositeComparator.flatten(first, next, rest));
     }
 }
\ No newline at end of file
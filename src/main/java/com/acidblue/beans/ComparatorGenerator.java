@@ -0,0 +1,349 @@
+package com.acidblue.beans;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Generates comparators specialized for a bean class and a list of
+ * properties.
+ * <p/>
+ * The read method of each property is resolved once and composed, together
+ * with the comparison suited to its return type, into a single
+ * {@link MethodHandle}. That handle is bound into a new hidden class defined
+ * from the {@link SpecializedComparator} template, so the resulting comparator
+ * calls the getters directly and compares primitives without boxing; there is
+ * no reflection and no nested comparator dispatch at comparison time.
+ * <p/>
+ * Generated comparators are cached per bean class and property list.
+ *
+ * @see ComparatorFactory#create(Class, String, String...)
+ * @see SpecializedComparator
+ */
+final class ComparatorGenerator {
+
+    /**
+     * Utility class; cannot be instantiated.
+     */
+    private ComparatorGenerator() {
+    }
+
+
+    /**
+     * The lookup used to resolve getters and to define the hidden classes.
+     */
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+
+    /**
+     * Stores, per class, the generated comparators keyed by property list.
+     */
+    private static final ClassValue<ConcurrentMap<String, Comparator<?>>> GENERATED =
+            new ClassValue<ConcurrentMap<String, Comparator<?>>>() {
+                @Override
+                protected ConcurrentMap<String, Comparator<?>> computeValue(final Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+
+
+    /**
+     * <code>(int)boolean</code>: tests if a comparison is already decided.
+     */
+    private static final MethodHandle IS_DECIDED;
+
+    /**
+     * <code>(int, Object, Object)int</code>: returns a decided comparison.
+     */
+    private static final MethodHandle DECIDED;
+
+    /**
+     * <code>(String, String)int</code>: compares two strings.
+     */
+    private static final MethodHandle COMPARE_STRINGS;
+
+    /**
+     * <code>(Object, Object)int</code>: compares two values as {@link BeanPropertyComparator} does.
+     */
+    private static final MethodHandle COMPARE_VALUES;
+
+    /**
+     * <code>(String, RuntimeException)Object</code>: reports a failure to read a property path.
+     */
+    private static final MethodHandle PATH_PROBLEM;
+
+    static {
+        try {
+            IS_DECIDED = LOOKUP.findStatic(ComparatorGenerator.class, "isDecided",
+                    MethodType.methodType(boolean.class, int.class));
+            DECIDED = MethodHandles.dropArguments(MethodHandles.identity(int.class), 1, Object.class, Object.class);
+            COMPARE_STRINGS = LOOKUP.findStatic(ComparatorGenerator.class, "compareStrings",
+                    MethodType.methodType(int.class, String.class, String.class));
+            COMPARE_VALUES = LOOKUP.findStatic(BeanPropertyComparator.class, "compareValues",
+                    MethodType.methodType(int.class, Object.class, Object.class));
+            PATH_PROBLEM = LOOKUP.findStatic(ComparatorGenerator.class, "pathProblem",
+                    MethodType.methodType(Object.class, String.class, RuntimeException.class));
+        }
+        catch (ReflectiveOperationException exception) {
+            throw new ExceptionInInitializerError(exception);
+        }
+    }
+
+
+    /**
+     * Returns a comparator for instances of <em>type</em> comparing the given properties in order.
+     *
+     * @param type       the bean class
+     * @param properties the properties to compare, most significant first
+     * @param <T>        the bean type
+     * @return a specialized comparator
+     * @throws IllegalArgumentException if a property cannot be found or accessed
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Comparator<T> generate(final Class<T> type, final String... properties) {
+        final String key = String.join(",", properties);
+        final ConcurrentMap<String, Comparator<?>> generated = GENERATED.get(type);
+        final Comparator<?> comparator = generated.get(key);
+
+        return (Comparator<T>) (comparator != null
+                ? comparator
+                : generated.computeIfAbsent(key, spec -> define(compose(type, properties))));
+    }
+
+
+    /**
+     * Composes the comparison of all <em>properties</em> into a single handle.
+     *
+     * @param type       the bean class
+     * @param properties the properties to compare, most significant first
+     * @return a handle of type <code>(Object, Object)int</code>
+     */
+    private static MethodHandle compose(final Class<?> type, final String[] properties) {
+        MethodHandle result = compare(type, properties[properties.length - 1]);
+
+        for (int i = properties.length - 2; i >= 0; i--) {
+            final MethodHandle next = MethodHandles.dropArguments(result, 0, int.class);
+
+            result = MethodHandles.foldArguments(
+                    MethodHandles.guardWithTest(IS_DECIDED, DECIDED, next),
+                    compare(type, properties[i]));
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Builds the comparison of a single property.
+     *
+     * @param type     the bean class
+     * @param property the property name
+     * @return a handle of type <code>(Object, Object)int</code>
+     */
+    private static MethodHandle compare(final Class<?> type, final String property) {
+        final PropertyAccessor accessor = BeanPropertyUtil.getAccessor(property, type);
+        final Class<?> valueType = accessor.getType();
+        final MethodHandle getter;
+
+        try {
+            getter = property.indexOf('.') < 0
+                    ? LOOKUP.unreflect(accessor.getMethod()).asType(MethodType.methodType(valueType, Object.class))
+                    : report(bind(accessor), property);
+        }
+        catch (ReflectiveOperationException exception) {
+            throw new IllegalArgumentException(String.format("Problem accessing property '%s': %s",
+                    property, exception.getMessage()), exception);
+        }
+
+        final MethodHandle comparison = comparison(getter.type().returnType());
+
+        return MethodHandles.filterArguments(comparison.asType(
+                MethodType.methodType(int.class, getter.type().returnType(), getter.type().returnType())),
+                0, getter, getter);
+    }
+
+
+    /**
+     * Returns a handle reading a property path through its composed accessor.
+     *
+     * @param accessor the accessor of the path
+     * @return a handle of type <code>(Object)int</code>, <code>(Object)long</code>, <code>(Object)double</code> or
+     *         <code>(Object)</code> the declared type of the path
+     * @throws ReflectiveOperationException if the accessor methods cannot be found
+     */
+    private static MethodHandle bind(final PropertyAccessor accessor) throws ReflectiveOperationException {
+        switch (accessor.getKind()) {
+            case INT:
+                return LOOKUP.findVirtual(PropertyAccessor.class, "getInt",
+                        MethodType.methodType(int.class, Object.class)).bindTo(accessor);
+            case LONG:
+                return LOOKUP.findVirtual(PropertyAccessor.class, "getLong",
+                        MethodType.methodType(long.class, Object.class)).bindTo(accessor);
+            case DOUBLE:
+                return LOOKUP.findVirtual(PropertyAccessor.class, "getDouble",
+                        MethodType.methodType(double.class, Object.class)).bindTo(accessor);
+            default:
+                final MethodHandle get = LOOKUP.findVirtual(PropertyAccessor.class, "get",
+                        MethodType.methodType(Object.class, Object.class)).bindTo(accessor);
+
+                return accessor.getType() == String.class
+                        ? get.asType(MethodType.methodType(String.class, Object.class))
+                        : get;
+        }
+    }
+
+
+    /**
+     * Wraps the handle reading a property path so that it reports failures as {@link BeanPropertyComparator}
+     * does, including a <code>null</code> part way along the path.
+     *
+     * @param getter the handle reading the path
+     * @param path   the property path
+     * @return a handle of the same type
+     */
+    private static MethodHandle report(final MethodHandle getter, final String path) {
+        final MethodHandle handler = MethodHandles.insertArguments(PATH_PROBLEM, 0, path)
+                .asType(MethodType.methodType(getter.type().returnType(), RuntimeException.class));
+
+        return MethodHandles.catchException(getter, RuntimeException.class,
+                MethodHandles.dropArguments(handler, 1, Object.class));
+    }
+
+
+    /**
+     * Returns the comparison for values of <em>valueType</em>.
+     *
+     * @param valueType the type returned by a read method
+     * @return a handle of type <code>(valueType, valueType)int</code>, or one that can be adapted to it
+     */
+    private static MethodHandle comparison(final Class<?> valueType) {
+        try {
+            if (valueType == int.class || valueType == short.class || valueType == byte.class) {
+                return LOOKUP.findStatic(Integer.class, "compare",
+                        MethodType.methodType(int.class, int.class, int.class));
+            } else if (valueType == long.class) {
+                return LOOKUP.findStatic(Long.class, "compare",
+                        MethodType.methodType(int.class, long.class, long.class));
+            } else if (valueType == double.class) {
+                return LOOKUP.findStatic(Double.class, "compare",
+                        MethodType.methodType(int.class, double.class, double.class));
+            } else if (valueType == float.class) {
+                return LOOKUP.findStatic(Float.class, "compare",
+                        MethodType.methodType(int.class, float.class, float.class));
+            } else if (valueType == char.class) {
+                return LOOKUP.findStatic(Character.class, "compare",
+                        MethodType.methodType(int.class, char.class, char.class));
+            } else if (valueType == boolean.class) {
+                return LOOKUP.findStatic(Boolean.class, "compare",
+                        MethodType.methodType(int.class, boolean.class, boolean.class));
+            } else if (valueType == String.class) {
+                return COMPARE_STRINGS;
+            }
+
+            return COMPARE_VALUES;
+        }
+        catch (ReflectiveOperationException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+
+    /**
+     * Defines a new hidden comparator class bound to <em>comparison</em>.
+     *
+     * @param comparison a handle of type <code>(Object, Object)int</code>
+     * @return an instance of the new class
+     */
+    private static Comparator<?> define(final MethodHandle comparison) {
+        try {
+            final Class<?> type = LOOKUP.defineHiddenClassWithClassData(Template.BYTES, comparison, true)
+                    .lookupClass();
+
+            return (Comparator<?>) type.getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException exception) {
+            throw new IllegalStateException("Cannot define specialized comparator", exception);
+        }
+    }
+
+
+    /**
+     * Determines if a comparison has been decided by a more significant property.
+     *
+     * @param result the comparison result
+     * @return <code>true</code> if the result is not zero
+     */
+    private static boolean isDecided(final int result) {
+        return result != 0;
+    }
+
+
+    /**
+     * Throws the exception {@link BeanPropertyComparator} reports when a property path cannot be read.
+     *
+     * @param path      the property path
+     * @param exception the exception thrown reading it
+     * @return never returns
+     * @throws IllegalArgumentException always
+     */
+    private static Object pathProblem(final String path, final RuntimeException exception) {
+        if (exception instanceof IllegalArgumentException) {
+            throw exception;
+        }
+
+        throw new IllegalArgumentException(String.format("Problem accessing property '%s': %s",
+                path, exception.getMessage()), exception);
+    }
+
+
+    /**
+     * Compares two strings as {@link BeanPropertyComparator} would.
+     *
+     * @param s1 the string to compare
+     * @param s2 the string to compare to
+     * @return the result of the comparison
+     */
+    private static int compareStrings(final String s1, final String s2) {
+        return s1 != null ? s1.compareTo(s2) : BeanPropertyComparator.compareValues(s1, s2);
+    }
+
+
+    /**
+     * Holds the bytes of the {@link SpecializedComparator} template, loaded on first use.
+     */
+    private static final class Template {
+
+        /**
+         * The class file of the template.
+         */
+        private static final byte[] BYTES = load();
+
+
+        /**
+         * Reads the template class file.
+         *
+         * @return the class file bytes
+         */
+        private static byte[] load() {
+            final String name = SpecializedComparator.class.getSimpleName() + ".class";
+
+            try (InputStream in = SpecializedComparator.class.getResourceAsStream(name)) {
+                if (in == null) {
+                    throw new IllegalStateException("Cannot find " + name);
+                }
+
+                return in.readAllBytes();
+            }
+            catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.acidblue.beans;
+
+import java.util.Comparator;
+
+/**
+ * Supplies comparators compiled ahead of time for one bean class.
+ * <p/>
+ * Implementations are generated by the <code>comparator-factory-processor</code>
+ * annotation processor from the {@link SortableBy} annotations of a class,
+ * and registered in <code>META-INF/services/com.acidblue.beans.ComparatorProvider</code>.
+ * {@link ComparatorFactory#create(Class, String, String...)} finds them with
+ * {@link java.util.ServiceLoader} and prefers their comparators to the ones it
+ * would otherwise generate at run time, so comparing needs neither reflection
+ * nor introspection.
+ * <p/>
+ * Implementations must be public, have a public no argument constructor and be
+ * safe to use from any number of threads.
+ *
+ * @see SortableBy
+ */
+public interface ComparatorProvider {
+
+    /**
+     * Returns the bean class the comparators of this provider compare.
+     *
+     * @return the bean class
+     */
+    Class<?> getType();
+
+
+    /**
+     * Returns the comparator comparing the given properties in order.
+     * <p/>
+     * The comparator must order beans exactly as
+     * {@link ComparatorFactory#create(Class, String, String...)} would for
+     * the same properties.
+     *
+     * @param properties the properties to compare, most significant first
+     * @return the comparator, or <code>null</code> if this provider has none for these properties
+     */
+    Comparator<?> getComparator(String... properties);
+}
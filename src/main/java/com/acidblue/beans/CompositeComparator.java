@@ -1,6 +1,9 @@
 package com.acidblue.beans;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 
 /**
  * Allows two comparators to be merged together.
@@ -15,43 +18,115 @@ import java.util.Comparator;
  * <p/>
  * The example above sorts items on last name, and then first name. Two beans
  * with the same last name will then be sorted on first name.
+ * <p/>
+ * Composites of composites are flattened into a single array of comparators,
+ * so comparing with a composite of many comparators is one loop, not a
+ * chain of nested calls.
  *
  * @author briggs <i><a href="mailto:acidbriggs@gmail.com">acidbriggs@gmail.com</a></i>
  * @author Alex Blewitt <I><A href="mailto:Alex.Blewitt@ioshq.com">Alex.Blewitt@ioshq.com</A></I>&gt;
- * @version 2.0
+ * @version 2.1
  * @see BeanPropertyComparator
  */
 public class CompositeComparator<T>
         implements Comparator<T> {
     /**
-     * The major comparator.
-     */
-    private final Comparator<T> major;
-    /**
-     * The minor comparator.
+     * The comparators, most significant first.
+     * <p/>
+     * Nested composites are flattened into this array, so that a composite of
+     * any number of comparators is compared in a single loop rather than
+     * through a chain of nested composites.
      */
-    private final Comparator<T> minor;
+    private final Comparator<T>[] comparators;
 
 
     /**
      * Create a new <code>CompositeComparator</code> using the given
      * comparators.
+     * <p/>
+     * If either comparator is itself a <code>CompositeComparator</code>, and
+     * not of a subclass, its comparators are copied into this one instead of
+     * being nested.
      *
      * @param major the most significant comparator
      * @param minor the least significant comparator
      */
     public CompositeComparator(final Comparator<T> major, final Comparator<T> minor) {
 
-        if (major == null) {
+        this(flatten(major, minor));
+    }
+
+
+    /**
+     * Create a new <code>CompositeComparator</code> using the given,
+     * already flattened, comparators.
+     *
+     * @param comparators the comparators, most significant first
+     */
+    CompositeComparator(final Comparator<T>[] comparators) {
+
+        this.comparators = comparators;
+    }
+
+
+    /**
+     * Combines comparators into one array, most significant first, replacing
+     * any <code>CompositeComparator</code> by its own comparators. Instances
+     * of subclasses are kept as they are.
+     *
+     * @param first the first comparator
+     * @param next  the second comparator
+     * @param rest  any other comparators
+     * @param <T>   the type in the comparators
+     * @return the flattened comparators
+     */
+    @SafeVarargs
+    static <T> Comparator<T>[] flatten(final Comparator<T> first, final Comparator<T> next,
+                                       final Comparator<T>... rest) {
+
+        if (first == null) {
             throw new NullPointerException("major was null");
         }
 
-        if (minor == null) {
+        if (next == null) {
             throw new NullPointerException("minor was null");
         }
 
-        this.major = major;
-        this.minor = minor;
+        final List<Comparator<T>> flattened = new ArrayList<>(rest.length + 2);
+
+        add(flattened, first);
+        add(flattened, next);
+
+        for (final Comparator<T> comparator : rest) {
+            if (comparator == null) {
+                throw new NullPointerException("rest contained null");
+            }
+
+            add(flattened, comparator);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final Comparator<T>[] array = flattened.toArray(new Comparator[0]);
+
+        return array;
+    }
+
+
+    /**
+     * Adds <em>comparator</em>, or its comparators if it is a composite, to
+     * <em>target</em>.
+     *
+     * @param target     the list to add to
+     * @param comparator the comparator to add
+     */
+    private static <T> void add(final List<Comparator<T>> target, final Comparator<T> comparator) {
+
+        // only this class: a subclass may compare differently from its comparators
+        if (comparator.getClass() == CompositeComparator.class) {
+            target.addAll(Arrays.asList(((CompositeComparator<T>) comparator).comparators));
+        } else {
+            target.add(comparator);
+        }
     }
 
 
@@ -59,24 +134,34 @@ public class CompositeComparator<T>
      * Compare two objects using the comparators given.
      * <p/>
      * Compares using the most significant comparator first. If they are equal,
-     * then returns the comparison with the least significant comparator.
+     * then returns the comparison with the next significant comparator, and so
+     * on.
      *
      * @param o1 the object to compare
      * @param o2 the object to compare to
      * @return <pre>
-     *                 int result = major.compare(o1,o2);
-     *                 if (result != 0) {
-     *                   return result;
-     *                 } else {
-     *                   return minor.compare(o1,o2);
+     *                 for (Comparator c : comparators) {
+     *                   int result = c.compare(o1,o2);
+     *                   if (result != 0) {
+     *                     return result;
+     *                   }
      *                 }
+     *                 return 0;
      *                 </pre>
      */
     public int compare(final T o1, final T o2) {
 
-        final int result = major.compare(o1, o2);
+        final Comparator<T>[] comparators = this.comparators;
+
+        for (final Comparator<T> comparator : comparators) {
+            final int result = comparator.compare(o1, o2);
+
+            if (result != 0) {
+                return result;
+            }
+        }
 
-        return result != 0 ? result : minor.compare(o1, o2);
+        return 0;
     }
 
 }
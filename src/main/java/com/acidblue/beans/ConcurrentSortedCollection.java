@@ -0,0 +1,517 @@
+package com.acidblue.beans;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A collection of beans kept sorted by their properties, which any number of
+ * threads may add to and read at the same time.
+ * <p/>
+ * The beans are kept in a lock-free skip list, so adding a bean costs
+ * O(log n) expected time without taking any lock, and reading never blocks
+ * adding, or the other way round:
+ * <pre>
+ *      ConcurrentSortedCollection&lt;PersonBean&gt; people =
+ *              ConcurrentSortedCollection.create(PersonBean.class, "lastName, firstName");
+ * <p/>
+ *      // any number of ingest threads
+ *      people.add(person);
+ * <p/>
+ *      // any number of readers
+ *      for (PersonBean person : people.snapshot()) { ... }
+ *      people.range(from, to);     // a live view of the beans from 'from' inclusive to 'to' exclusive
+ * </pre>
+ * <p/>
+ * Each bean is stamped with a sequence number when it is added, and beans
+ * comparing equal are ordered by it, so they keep the order they were added
+ * in, as after a stable sort, and a bean may be added more than once. Beans
+ * must not change their sort properties while in the collection, and cannot
+ * be <code>null</code>.
+ * <p/>
+ * Iterators and views are weakly consistent, as those of
+ * {@link ConcurrentSkipListSet}: they never throw
+ * {@link java.util.ConcurrentModificationException}, see every bean present
+ * when they were created and not removed since, and may or may not see beans
+ * added or removed while in use. {@link #snapshot()} copies the beans into a
+ * list that no longer changes.
+ * <p/>
+ * Beans are found by equality, comparing only those whose sort properties
+ * are equal, so {@link #contains(Object)} and {@link #remove(Object)} also
+ * cost O(log n) plus the number of such beans.
+ *
+ * @param <E> the bean type
+ * @see ComparatorFactory#parse(Class, String)
+ */
+public class ConcurrentSortedCollection<E> extends AbstractCollection<E> {
+
+    /**
+     * The comparator the beans are sorted by.
+     */
+    private final Comparator<? super E> comparator;
+
+    /**
+     * The beans with their sequence numbers, in sorted order.
+     */
+    private final NavigableSet<Entry<E>> entries;
+
+    /**
+     * The next sequence number, shared with all views.
+     */
+    private final AtomicLong sequence;
+
+    /**
+     * The number of beans in the whole collection, shared with all views.
+     */
+    private final LongAdder count;
+
+    /**
+     * Whether this is a view of a range of the collection.
+     */
+    private final boolean view;
+
+
+    /**
+     * Creates a new, empty collection.
+     *
+     * @param comparator the comparator to sort the beans by
+     */
+    public ConcurrentSortedCollection(final Comparator<? super E> comparator) {
+
+        if (comparator == null) {
+            throw new NullPointerException("comparator was null");
+        }
+
+        this.comparator = comparator;
+        this.entries = new ConcurrentSkipListSet<Entry<E>>((e1, e2) -> {
+            final int result = comparator.compare(e1.element, e2.element);
+
+            return result != 0 ? result : Long.compare(e1.sequence, e2.sequence);
+        });
+        this.sequence = new AtomicLong();
+        this.count = new LongAdder();
+        this.view = false;
+    }
+
+
+    /**
+     * Creates a view of a range of a collection.
+     *
+     * @param parent  the collection
+     * @param entries the range of its entries
+     */
+    private ConcurrentSortedCollection(final ConcurrentSortedCollection<E> parent,
+                                       final NavigableSet<Entry<E>> entries) {
+
+        this.comparator = parent.comparator;
+        this.entries = entries;
+        this.sequence = parent.sequence;
+        this.count = parent.count;
+        this.view = true;
+    }
+
+
+    /**
+     * Creates a new, empty collection of instances of <em>type</em> sorted as the sort specification
+     * <em>spec</em> describes, for example <code>lastName, firstName</code>.
+     *
+     * @param type the class of the beans
+     * @param spec the sort specification
+     * @param <E>  the bean type
+     * @return the new collection
+     * @throws IllegalArgumentException if <em>spec</em> is not valid, or a property cannot be found in
+     *                                  <em>type</em>
+     * @see ComparatorFactory#parse(Class, String)
+     */
+    public static <E> ConcurrentSortedCollection<E> create(final Class<E> type, final String spec) {
+        return new ConcurrentSortedCollection<E>(ComparatorFactory.parse(type, spec));
+    }
+
+
+    /**
+     * Adds a bean in its sorted place, after any beans comparing equal to it.
+     *
+     * @param element the bean to add
+     * @return <code>true</code>
+     */
+    @Override
+    public boolean add(final E element) {
+
+        if (element == null) {
+            throw new NullPointerException("element was null");
+        }
+
+        insert(new Entry<E>(element, sequence.getAndIncrement()));
+
+        return true;
+    }
+
+
+    /**
+     * Adds all beans of <em>source</em>, beans comparing equal keeping their order in <em>source</em>.
+     * <p/>
+     * The beans are sorted before they are added, and take one block of sequence numbers, so each is inserted
+     * right after the one before it, along a path of the skip list that is mostly still in cache. The beans are
+     * added one at a time, so readers may see some of them before the others.
+     *
+     * @param source the beans to add
+     * @return <code>true</code> if any bean was added
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean addAll(final Collection<? extends E> source) {
+
+        if (source == null) {
+            throw new NullPointerException("source was null");
+        }
+
+        final E[] batch = (E[]) source.toArray();
+
+        for (final E element : batch) {
+            if (element == null) {
+                throw new NullPointerException("source contained null");
+            }
+        }
+
+        Arrays.sort(batch, comparator);
+
+        long next = sequence.getAndAdd(batch.length);
+
+        for (final E element : batch) {
+            insert(new Entry<E>(element, next++));
+        }
+
+        return batch.length > 0;
+    }
+
+
+    /**
+     * Adds an entry to the skip list and counts it.
+     * <p/>
+     * The entry is counted before it is added, so that a concurrent removal of it never takes the count below
+     * the size, and the count is taken back if adding fails, for example because a view rejects the bean as out
+     * of range or the comparator cannot read it.
+     *
+     * @param entry the entry to add
+     */
+    private void insert(final Entry<E> entry) {
+        count.increment();
+
+        try {
+            entries.add(entry);
+        }
+        catch (RuntimeException | Error exception) {
+            count.decrement();
+            throw exception;
+        }
+    }
+
+
+    /**
+     * Removes one bean equal to <em>o</em>, the first added of those comparing equal.
+     *
+     * @param o the bean to remove
+     * @return <code>true</code> if a bean was removed
+     */
+    @Override
+    public boolean remove(final Object o) {
+
+        for (final Entry<E> entry : equal(o)) {
+            if (entry.element.equals(o) && entries.remove(entry)) {
+                count.decrement();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    @Override
+    public boolean contains(final Object o) {
+
+        for (final Entry<E> entry : equal(o)) {
+            if (entry.element.equals(o)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Returns the beans in sorted order. The iterator is weakly consistent, and supports removal.
+     *
+     * @return an iterator over the beans
+     */
+    @Override
+    public Iterator<E> iterator() {
+
+        final Iterator<Entry<E>> iterator = entries.iterator();
+
+        return new Iterator<E>() {
+
+            /**
+             * The entry last returned, or <code>null</code> if there is none to remove.
+             */
+            private Entry<E> last;
+
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+
+            @Override
+            public E next() {
+                last = iterator.next();
+
+                return last.element;
+            }
+
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+
+                // another thread may have removed the entry already, in which case it must not be counted twice
+                if (entries.remove(last)) {
+                    count.decrement();
+                }
+
+                last = null;
+            }
+        };
+    }
+
+
+    /**
+     * Returns the number of beans. For the whole collection this is a running count; for a view the beans are
+     * counted, in O(n) time. Either way the result may be out of date by the time it is returned if other threads
+     * add or remove beans.
+     *
+     * @return the number of beans
+     */
+    @Override
+    public int size() {
+
+        if (view) {
+            return entries.size();
+        }
+
+        // the sum is not an atomic snapshot, so concurrent updates may briefly make it negative
+        return (int) Math.min(Math.max(count.sum(), 0), Integer.MAX_VALUE);
+    }
+
+
+    @Override
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+
+    @Override
+    public void clear() {
+
+        final Iterator<E> iterator = iterator();
+
+        while (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+
+    /**
+     * Returns the first bean.
+     *
+     * @return the bean, or <code>null</code> if there is none
+     */
+    public E first() {
+
+        final Entry<E> entry = peek(entries.iterator());
+
+        return entry == null ? null : entry.element;
+    }
+
+
+    /**
+     * Returns the last bean.
+     *
+     * @return the bean, or <code>null</code> if there is none
+     */
+    public E last() {
+
+        final Entry<E> entry = peek(entries.descendingIterator());
+
+        return entry == null ? null : entry.element;
+    }
+
+
+    /**
+     * Copies the beans, in sorted order, into a list that no longer changes.
+     * <p/>
+     * The list holds every bean added before this method was called and not removed since, and no bean added
+     * after it was called, so that a reader sees a stable, sorted picture however fast beans are added. Beans
+     * added or removed during the call may or may not be included.
+     *
+     * @return an unmodifiable list of the beans
+     */
+    public List<E> snapshot() {
+
+        final long end = sequence.get();
+        final List<E> beans = new ArrayList<E>();
+
+        for (final Entry<E> entry : entries) {
+            if (entry.sequence < end) {
+                beans.add(entry.element);
+            }
+        }
+
+        return Collections.unmodifiableList(beans);
+    }
+
+
+    /**
+     * Returns a live view of the beans from <em>from</em>, inclusive, to <em>to</em>, exclusive, by the
+     * comparator. Beans added to the view must fall in the range.
+     *
+     * @param from a bean with the lowest sort properties, inclusive
+     * @param to   a bean with the highest sort properties, exclusive
+     * @return the view
+     * @throws IllegalArgumentException if <em>from</em> is greater than <em>to</em>
+     */
+    public ConcurrentSortedCollection<E> range(final E from, final E to) {
+        return new ConcurrentSortedCollection<E>(this, entries.subSet(lowest(from), true, lowest(to), false));
+    }
+
+
+    /**
+     * Returns a live view of the beans less than <em>to</em> by the comparator. Beans added to the view must fall
+     * in the range.
+     *
+     * @param to a bean with the highest sort properties, exclusive
+     * @return the view
+     */
+    public ConcurrentSortedCollection<E> head(final E to) {
+        return new ConcurrentSortedCollection<E>(this, entries.headSet(lowest(to), false));
+    }
+
+
+    /**
+     * Returns a live view of the beans greater than or equal to <em>from</em> by the comparator. Beans added to
+     * the view must fall in the range.
+     *
+     * @param from a bean with the lowest sort properties, inclusive
+     * @return the view
+     */
+    public ConcurrentSortedCollection<E> tail(final E from) {
+        return new ConcurrentSortedCollection<E>(this, entries.tailSet(lowest(from), true));
+    }
+
+
+    /**
+     * Returns the comparator the beans are sorted by.
+     *
+     * @return the comparator
+     */
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+
+    /**
+     * Returns the entries comparing equal to <em>o</em>.
+     *
+     * @param o the bean to find
+     * @return the entries, or an empty set if <em>o</em> cannot be compared to the beans or is out of range
+     */
+    @SuppressWarnings("unchecked")
+    private NavigableSet<Entry<E>> equal(final Object o) {
+
+        if (o == null) {
+            return Collections.emptyNavigableSet();
+        }
+
+        try {
+            final E element = (E) o;
+
+            return entries.subSet(new Entry<E>(element, Long.MIN_VALUE), true,
+                    new Entry<E>(element, Long.MAX_VALUE), true);
+        }
+        catch (ClassCastException | IllegalArgumentException exception) {
+            // not a bean of this type, or outside the range of this view
+            return Collections.emptyNavigableSet();
+        }
+    }
+
+
+    /**
+     * Returns a bound before every entry comparing equal to <em>element</em>.
+     *
+     * @param element the bean
+     * @return the bound
+     */
+    private static <E> Entry<E> lowest(final E element) {
+
+        if (element == null) {
+            throw new NullPointerException("bound was null");
+        }
+
+        return new Entry<E>(element, Long.MIN_VALUE);
+    }
+
+
+    /**
+     * Returns the next entry of an iterator, if any.
+     *
+     * @param iterator the iterator
+     * @return the entry, or <code>null</code> if there is none
+     */
+    private static <E> Entry<E> peek(final Iterator<Entry<E>> iterator) {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+
+    /**
+     * A bean with the sequence number it was added with. Sequence numbers start at zero, so bounds use
+     * <code>Long.MIN_VALUE</code>.
+     */
+    private static final class Entry<E> {
+
+        /**
+         * The bean.
+         */
+        final E element;
+
+        /**
+         * The order the bean was added in.
+         */
+        final long sequence;
+
+
+        /**
+         * Creates a new entry.
+         *
+         * @param element  the bean
+         * @param sequence the order the bean was added in
+         */
+        Entry(final E element, final long sequence) {
+            this.element = element;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,598 @@
+package com.acidblue.beans;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.Cleaner;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Sorts more beans than fit in memory.
+ * <p/>
+ * Beans are read from the source in runs of a fixed number of records. Each
+ * run is sorted in memory and, unless it is the last one, written to a
+ * temporary file through a {@link FileChannel}. The runs are then merged
+ * lazily by a {@link MergingIterator}, reading each file back through a
+ * window of memory-mapped pages that is unmapped as soon as it has been read.
+ * <p/>
+ * No more than {@link #MAX_FAN_IN} runs are merged at once, so that the number
+ * of open files and mapped windows stays bounded however large the source.
+ * When there are more runs, consecutive groups of them are first merged into
+ * longer runs, in as many passes as needed.
+ * <p/>
+ * A run file is deleted as soon as it has been read. The iterator returned
+ * for spilled runs is {@link Closeable}: closing it deletes the files not yet
+ * read, and the files of an iterator that is abandoned without being closed
+ * are deleted once it is garbage collected.
+ *
+ * @see SortUtil#externalSort(Iterator, RecordCodec, int, String, String...)
+ */
+final class ExternalSorter<E> {
+
+    /**
+     * The number of bytes of a run file mapped at a time.
+     */
+    private static final long WINDOW = 1L << 24;
+
+    /**
+     * The size of the write buffer of a run file.
+     */
+    private static final int BUFFER = 1 << 16;
+
+    /**
+     * The maximum number of runs merged at once.
+     */
+    static final int MAX_FAN_IN = 64;
+
+    /**
+     * Deletes the run files of abandoned iterators.
+     */
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /**
+     * Unmaps a mapped buffer, or <code>null</code> if the virtual machine does not allow it; mapped windows are
+     * then released when they are garbage collected.
+     */
+    private static final MethodHandle UNMAP = unmapper();
+
+
+    /**
+     * Writes and reads the beans.
+     */
+    private final RecordCodec<E> codec;
+
+    /**
+     * The maximum number of beans held in memory while reading the source.
+     */
+    private final int runSize;
+
+    /**
+     * The directory of the run files, or <code>null</code> for the default temporary directory.
+     */
+    private final Path directory;
+
+    /**
+     * The comparator the runs are sorted by.
+     */
+    private final Comparator<? super E> comparator;
+
+    /**
+     * Sorts a run in memory, consistently with {@link #comparator}.
+     */
+    private final Consumer<List<E>> runSorter;
+
+
+    /**
+     * Creates a new sorter.
+     *
+     * @param codec      writes and reads the beans
+     * @param runSize    the maximum number of beans held in memory while reading the source
+     * @param directory  the directory of the run files, or <code>null</code> for the default temporary directory
+     * @param comparator the comparator to sort by
+     * @param runSorter  stably sorts a run in memory, consistently with <em>comparator</em>
+     */
+    ExternalSorter(final RecordCodec<E> codec, final int runSize, final Path directory,
+                   final Comparator<? super E> comparator, final Consumer<List<E>> runSorter) {
+
+        if (codec == null) {
+            throw new NullPointerException("codec was null");
+        }
+
+        if (runSize < 1) {
+            throw new IllegalArgumentException("runSize must be positive: " + runSize);
+        }
+
+        this.codec = codec;
+        this.runSize = runSize;
+        this.directory = directory;
+        this.comparator = comparator;
+        this.runSorter = runSorter;
+    }
+
+
+    /**
+     * Reads and sorts all of <em>source</em>.
+     *
+     * @param source the beans to sort
+     * @return the beans in sorted order; {@link Closeable} if any run was written to disk
+     * @throws UncheckedIOException if a run cannot be written
+     */
+    Iterator<E> sort(final Iterator<? extends E> source) {
+        final List<RunIterator> created = new ArrayList<>();
+        final List<E> buffer = new ArrayList<>(Math.min(runSize, BUFFER));
+        List<RunIterator> runs = new ArrayList<>();
+
+        try {
+            while (source.hasNext()) {
+                buffer.add(source.next());
+
+                if (buffer.size() == runSize && source.hasNext()) {
+                    runSorter.accept(buffer);
+                    runs.add(write(buffer.iterator(), buffer.size(), created));
+                    buffer.clear();
+                }
+            }
+
+            // the last run is kept in memory, and merged with at most MAX_FAN_IN - 1 others
+            while (runs.size() >= MAX_FAN_IN) {
+                runs = mergePass(runs, created);
+            }
+
+            runSorter.accept(buffer);
+
+            if (runs.isEmpty()) {
+                return buffer.iterator();
+            }
+
+            return new SortedIterator<E>(runs, buffer, comparator);
+        }
+        catch (IOException exception) {
+            closeAll(created);
+            throw new UncheckedIOException(exception);
+        }
+        catch (RuntimeException | Error exception) {
+            closeAll(created);
+            throw exception;
+        }
+    }
+
+
+    /**
+     * Merges consecutive groups of up to {@link #MAX_FAN_IN} runs into one run each.
+     *
+     * @param runs    the runs, in order
+     * @param created every run file created so far, to which the new ones are added
+     * @return the merged runs, in the same order
+     * @throws IOException if a run cannot be written
+     */
+    private List<RunIterator> mergePass(final List<RunIterator> runs, final List<RunIterator> created)
+            throws IOException {
+
+        final List<RunIterator> merged = new ArrayList<>((runs.size() + MAX_FAN_IN - 1) / MAX_FAN_IN);
+
+        for (int from = 0; from < runs.size(); from += MAX_FAN_IN) {
+            final List<RunIterator> group = runs.subList(from, Math.min(from + MAX_FAN_IN, runs.size()));
+
+            if (group.size() == 1) {
+                merged.add(group.get(0));
+                continue;
+            }
+
+            long count = 0;
+
+            for (final RunIterator run : group) {
+                count += run.remaining;
+            }
+
+            // each run deletes its file once it has been read
+            merged.add(write(new MergingIterator<E>(group, comparator), count, created));
+        }
+
+        return merged;
+    }
+
+
+    /**
+     * Writes beans to a new run file.
+     *
+     * @param records the beans of the run, in sorted order
+     * @param count   the number of beans
+     * @param created every run file created so far, to which the new one is added
+     * @return an iterator reading the run back
+     * @throws IOException if the run cannot be written
+     */
+    private RunIterator write(final Iterator<? extends E> records, final long count,
+                              final List<RunIterator> created) throws IOException {
+
+        final Path file = directory == null
+                ? Files.createTempFile("sort", ".run")
+                : Files.createTempFile(directory, "sort", ".run");
+        final RunIterator run = new RunIterator(file, count);
+
+        created.add(run);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER))) {
+
+            while (records.hasNext()) {
+                codec.write(records.next(), out);
+            }
+        }
+
+        return run;
+    }
+
+
+    /**
+     * Closes runs and deletes their files, going on past failures.
+     *
+     * @param runs the runs
+     * @throws UncheckedIOException if a file could not be deleted
+     */
+    private static void closeAll(final List<? extends Closeable> runs) {
+        UncheckedIOException failure = null;
+
+        for (final Closeable run : runs) {
+            try {
+                run.close();
+            }
+            catch (IOException exception) {
+                if (failure == null) {
+                    failure = new UncheckedIOException(exception);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+
+    /**
+     * Unmaps a mapped buffer right away, if the virtual machine allows it. The buffer must not be used afterwards.
+     *
+     * @param buffer the buffer
+     */
+    private static void unmap(final MappedByteBuffer buffer) {
+        if (UNMAP != null && buffer != null) {
+            try {
+                UNMAP.invokeExact((ByteBuffer) buffer);
+            }
+            catch (Throwable ignored) {
+                // released when garbage collected
+            }
+        }
+    }
+
+
+    /**
+     * Finds the way to unmap mapped buffers: <code>sun.misc.Unsafe.invokeCleaner</code>.
+     *
+     * @return the method handle, taking the buffer, or <code>null</code> if it is not available
+     */
+    private static MethodHandle unmapper() {
+        try {
+            final Class<?> type = Class.forName("sun.misc.Unsafe");
+            final Field field = type.getDeclaredField("theUnsafe");
+
+            field.setAccessible(true);
+
+            return MethodHandles.lookup()
+                    .findVirtual(type, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(field.get(null));
+        }
+        catch (ReflectiveOperationException | RuntimeException exception) {
+            return null;
+        }
+    }
+
+
+    /**
+     * Merges the spilled runs and the last run, held in memory, and owns the files of the runs.
+     */
+    private static final class SortedIterator<E> implements Iterator<E>, Closeable {
+
+        /**
+         * The merge of all runs.
+         */
+        private final Iterator<E> merge;
+
+        /**
+         * Deletes the run files not yet read; run on {@link #close()}, at the end, or once this iterator is
+         * garbage collected.
+         */
+        private final Cleaner.Cleanable cleanable;
+
+
+        /**
+         * Creates a new iterator, reading the first bean of every run.
+         *
+         * @param runs       the spilled runs, in order
+         * @param last       the last run, sorted
+         * @param comparator the comparator the runs are sorted by
+         */
+        SortedIterator(final List<? extends Closeable> runs, final List<E> last,
+                       final Comparator<? super E> comparator) {
+
+            // the action must not refer to this iterator, or it would never become unreachable
+            this.cleanable = CLEANER.register(this, () -> closeAll(runs));
+
+            final List<Iterator<? extends E>> sources = new ArrayList<>(runs.size() + 1);
+
+            for (final Closeable run : runs) {
+                @SuppressWarnings("unchecked")
+                final Iterator<? extends E> source = (Iterator<? extends E>) run;
+
+                sources.add(source);
+            }
+
+            sources.add(last.iterator());
+
+            try {
+                this.merge = new MergingIterator<E>(sources, comparator);
+            }
+            catch (RuntimeException | Error exception) {
+                cleanable.clean();
+                throw exception;
+            }
+        }
+
+
+        @Override
+        public boolean hasNext() {
+            if (merge.hasNext()) {
+                return true;
+            }
+
+            cleanable.clean();
+
+            return false;
+        }
+
+
+        @Override
+        public E next() {
+            return merge.next();
+        }
+
+
+        /**
+         * Deletes the run files not yet read. The iterator must not be used afterwards.
+         */
+        @Override
+        public void close() {
+            cleanable.clean();
+        }
+    }
+
+
+    /**
+     * Reads the beans of a run file, deleting it once they have all been read.
+     */
+    private final class RunIterator implements Iterator<E>, Closeable {
+
+        /**
+         * The run file.
+         */
+        private final Path file;
+
+        /**
+         * The number of beans not yet read.
+         */
+        private long remaining;
+
+        /**
+         * The open file, or <code>null</code> before the first read and after the last.
+         */
+        private FileChannel channel;
+
+        /**
+         * Reads from {@link #channel}.
+         */
+        private DataInputStream in;
+
+
+        /**
+         * Creates a new iterator.
+         *
+         * @param file  the run file
+         * @param count the number of beans in the file
+         */
+        RunIterator(final Path file, final long count) {
+            this.file = file;
+            this.remaining = count;
+        }
+
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+
+        @Override
+        public E next() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+
+            try {
+                if (channel == null) {
+                    channel = FileChannel.open(file, StandardOpenOption.READ);
+                    in = new DataInputStream(new MappedInputStream(channel));
+                }
+
+                final E record = codec.read(in);
+
+                if (--remaining == 0) {
+                    close();
+                }
+
+                return record;
+            }
+            catch (IOException exception) {
+                closeQuietly();
+                throw new UncheckedIOException(exception);
+            }
+        }
+
+
+        /**
+         * Closes the run file, unmapping its window, and deletes it. Closing it again has no effect.
+         *
+         * @throws IOException if the file cannot be closed or deleted
+         */
+        @Override
+        public void close() throws IOException {
+            remaining = 0;
+
+            try {
+                if (in != null) {
+                    in.close();
+                }
+
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+            finally {
+                channel = null;
+                in = null;
+                Files.deleteIfExists(file);
+            }
+        }
+
+
+        /**
+         * Closes and deletes the run file after a failure, keeping the first exception.
+         */
+        private void closeQuietly() {
+            try {
+                close();
+            }
+            catch (IOException ignored) {
+                // the read failure is reported
+            }
+        }
+    }
+
+
+    /**
+     * Reads a file channel sequentially, mapping {@link #WINDOW} bytes of it at a time.
+     */
+    private static final class MappedInputStream extends InputStream {
+
+        /**
+         * The channel to read.
+         */
+        private final FileChannel channel;
+
+        /**
+         * The size of the file.
+         */
+        private final long size;
+
+        /**
+         * The file position of the next window.
+         */
+        private long position;
+
+        /**
+         * The current window.
+         */
+        private MappedByteBuffer window;
+
+
+        /**
+         * Creates a new stream.
+         *
+         * @param channel the channel to read
+         * @throws IOException if the size of the file cannot be read
+         */
+        MappedInputStream(final FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+
+        @Override
+        public int read() throws IOException {
+            return advance() ? window.get() & 0xFF : -1;
+        }
+
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+
+            if (!advance()) {
+                return -1;
+            }
+
+            final int count = Math.min(length, window.remaining());
+            window.get(bytes, offset, count);
+
+            return count;
+        }
+
+
+        /**
+         * Maps the next window if the current one has been read.
+         *
+         * @return <code>false</code> at the end of the file
+         * @throws IOException if the file cannot be mapped
+         */
+        private boolean advance() throws IOException {
+            if (window != null && window.hasRemaining()) {
+                return true;
+            }
+
+            unmap(window);
+            window = null;
+
+            if (position >= size) {
+                return false;
+            }
+
+            final long length = Math.min(WINDOW, size - position);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            position += length;
+
+            return true;
+        }
+
+
+        /**
+         * Unmaps the current window; the channel is closed by its owner.
+         */
+        @Override
+        public void close() {
+            unmap(window);
+            window = null;
+        }
+    }
+}
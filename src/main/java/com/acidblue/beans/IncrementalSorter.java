@@ -0,0 +1,217 @@
+package com.acidblue.beans;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Returns elements in sorted order one at a time, sorting only as much as
+ * has been asked for.
+ * <p/>
+ * This is an incremental quicksort over an <code>int</code> permutation of
+ * the elements: to produce the next element, the leftmost unsorted range is
+ * partitioned again and again until its first position is final, and the
+ * pivots found on the way are kept on a stack so that no partitioning is ever
+ * repeated. Producing the first <em>k</em> elements of <em>n</em> takes
+ * O(n + k log k) comparisons on average, and all <em>n</em> take
+ * O(n log n). Short ranges are insertion sorted.
+ * <p/>
+ * Elements with equal keys are ordered by their original index, so the
+ * result is that of a stable sort.
+ *
+ * @see SortUtil#sortedStream(java.util.Collection, String, String...)
+ */
+final class IncrementalSorter<E> implements Iterator<E> {
+
+    /**
+     * Ranges at most this long are insertion sorted.
+     */
+    private static final int INSERTION_THRESHOLD = 16;
+
+
+    /**
+     * The elements, in their original order.
+     */
+    private final Object[] elements;
+
+    /**
+     * The keys of the elements.
+     */
+    private final SortKeys keys;
+
+    /**
+     * The indexes of the elements, sorted up to {@link #sorted}.
+     */
+    private final int[] order;
+
+    /**
+     * The positions of the pivots not yet passed, the leftmost on top; the bottom entry is the number of
+     * elements.
+     */
+    private int[] pivots = new int[32];
+
+    /**
+     * The number of entries in {@link #pivots}.
+     */
+    private int depth;
+
+    /**
+     * The position of the next element to return.
+     */
+    private int next;
+
+    /**
+     * The positions before this one hold their final element.
+     */
+    private int sorted;
+
+
+    /**
+     * Creates a new sorter.
+     *
+     * @param elements the elements
+     * @param keys     the keys of the elements
+     */
+    IncrementalSorter(final Object[] elements, final SortKeys keys) {
+        this.elements = elements;
+        this.keys = keys;
+        this.order = new int[elements.length];
+
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+
+        pivots[depth++] = elements.length;
+    }
+
+
+    @Override
+    public boolean hasNext() {
+        return next < order.length;
+    }
+
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E next() {
+        if (next == order.length) {
+            throw new NoSuchElementException();
+        }
+
+        while (next >= sorted) {
+            final int end = pivots[depth - 1];
+
+            if (end - next <= INSERTION_THRESHOLD) {
+                // sorts up to the pivot, which is already in place
+                insertionSort(next, end);
+                sorted = end + 1;
+                depth--;
+            } else {
+                push(partition(next, end));
+            }
+        }
+
+        return (E) elements[order[next++]];
+    }
+
+
+    /**
+     * Partitions <code>order[from, to)</code> around the median of its first, middle and last elements.
+     *
+     * @param from the first position, inclusive
+     * @param to   the last position, exclusive
+     * @return the final position of the pivot; elements before it are smaller, elements after it greater
+     */
+    private int partition(final int from, final int to) {
+        final int last = to - 1;
+        final int middle = (from + last) >>> 1;
+
+        // the median of three is moved to the end
+        if (compare(order[middle], order[from]) < 0) {
+            swap(middle, from);
+        }
+
+        if (compare(order[last], order[from]) < 0) {
+            swap(last, from);
+        }
+
+        if (compare(order[middle], order[last]) < 0) {
+            swap(middle, last);
+        }
+
+        final int pivot = order[last];
+        int store = from;
+
+        for (int i = from; i < last; i++) {
+            if (compare(order[i], pivot) < 0) {
+                swap(i, store++);
+            }
+        }
+
+        swap(store, last);
+
+        return store;
+    }
+
+
+    /**
+     * Sorts <code>order[from, to)</code> by insertion.
+     *
+     * @param from the first position, inclusive
+     * @param to   the last position, exclusive
+     */
+    private void insertionSort(final int from, final int to) {
+        for (int i = from + 1; i < to; i++) {
+            final int index = order[i];
+            int j = i;
+
+            while (j > from && compare(order[j - 1], index) > 0) {
+                order[j] = order[j - 1];
+                j--;
+            }
+
+            order[j] = index;
+        }
+    }
+
+
+    /**
+     * Compares two elements by their keys, then by their original index.
+     *
+     * @param i the index of the element to compare
+     * @param j the index of the element to compare to
+     * @return the result of the comparison; only zero if <em>i</em> equals <em>j</em>
+     */
+    private int compare(final int i, final int j) {
+        final int result = keys.compare(i, j);
+
+        return result != 0 ? result : Integer.compare(i, j);
+    }
+
+
+    /**
+     * Swaps two positions of the permutation.
+     *
+     * @param i a position
+     * @param j another position
+     */
+    private void swap(final int i, final int j) {
+        final int index = order[i];
+        order[i] = order[j];
+        order[j] = index;
+    }
+
+
+    /**
+     * Pushes the position of a pivot.
+     *
+     * @param pivot the position
+     */
+    private void push(final int pivot) {
+        if (depth == pivots.length) {
+            pivots = Arrays.copyOf(pivots, depth << 1);
+        }
+
+        pivots[depth++] = pivot;
+    }
+}
@@ -0,0 +1,226 @@
+package com.acidblue.beans;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Sorts element indexes by their {@link SortKeys}.
+ * <p/>
+ * The sort is a stable merge sort over an <code>int</code> permutation, with
+ * insertion sort for short ranges and a skipped merge when two ranges are
+ * already in order. Elements themselves are never touched. The halves of large
+ * ranges can also be sorted in parallel in a {@link ForkJoinPool}.
+ *
+ * @see SortKeys
+ */
+final class IndexSorter {
+
+    /**
+     * Ranges at most this long are insertion sorted.
+     */
+    private static final int INSERTION_THRESHOLD = 32;
+
+
+    /**
+     * Utility class; cannot be instantiated.
+     */
+    private IndexSorter() {
+    }
+
+
+    /**
+     * Returns the stable sorted permutation of the <em>size</em> elements described by <em>keys</em>.
+     *
+     * @param keys the keys of the elements
+     * @param size the number of elements
+     * @return the indexes of the elements in sorted order
+     */
+    static int[] sort(final SortKeys keys, final int size) {
+        final int[] order = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+
+        sort(keys, order, order.clone(), 0, size);
+
+        return order;
+    }
+
+
+    /**
+     * Returns the stable sorted permutation of the <em>size</em> elements described by <em>keys</em>, sorting
+     * ranges longer than <em>granularity</em> by sorting their halves in parallel in <em>pool</em>.
+     *
+     * @param keys        the keys of the elements
+     * @param size        the number of elements
+     * @param pool        the pool to sort in
+     * @param granularity ranges at most this long are sorted sequentially
+     * @return the indexes of the elements in sorted order
+     */
+    static int[] sort(final SortKeys keys, final int size, final ForkJoinPool pool, final int granularity) {
+        final int[] order = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+
+        pool.invoke(new SortTask(keys, order, order.clone(), 0, size, granularity));
+
+        return order;
+    }
+
+
+    /**
+     * Sorts <code>order[from, to)</code>, using <em>work</em> as scratch space.
+     *
+     * @param keys  the keys of the elements
+     * @param order the indexes to sort
+     * @param work  scratch space holding a copy of <em>order</em>
+     * @param from  the first index, inclusive
+     * @param to    the last index, exclusive
+     */
+    static void sort(final SortKeys keys, final int[] order, final int[] work, final int from, final int to) {
+        if (to - from <= INSERTION_THRESHOLD) {
+            insertionSort(keys, order, from, to);
+            return;
+        }
+
+        final int middle = (from + to) >>> 1;
+
+        sort(keys, work, order, from, middle);
+        sort(keys, work, order, middle, to);
+
+        merge(keys, work, order, from, middle, to);
+    }
+
+
+    /**
+     * Merges the sorted ranges <code>source[from, middle)</code> and <code>source[middle, to)</code> into
+     * <code>target[from, to)</code>. Ties are taken from the first range, which keeps the sort stable.
+     *
+     * @param keys   the keys of the elements
+     * @param source the sorted ranges
+     * @param target where the merged range is written
+     * @param from   the start of the first range
+     * @param middle the start of the second range
+     * @param to     the end of the second range
+     */
+    static void merge(final SortKeys keys, final int[] source, final int[] target,
+                      final int from, final int middle, final int to) {
+        if (keys.compare(source[middle - 1], source[middle]) <= 0) {
+            System.arraycopy(source, from, target, from, to - from);
+            return;
+        }
+
+        int left = from;
+        int right = middle;
+
+        for (int i = from; i < to; i++) {
+            if (right >= to || left < middle && keys.compare(source[left], source[right]) <= 0) {
+                target[i] = source[left++];
+            } else {
+                target[i] = source[right++];
+            }
+        }
+    }
+
+
+    /**
+     * Insertion sorts <code>order[from, to)</code>.
+     *
+     * @param keys  the keys of the elements
+     * @param order the indexes to sort
+     * @param from  the first index, inclusive
+     * @param to    the last index, exclusive
+     */
+    private static void insertionSort(final SortKeys keys, final int[] order, final int from, final int to) {
+        for (int i = from + 1; i < to; i++) {
+            final int index = order[i];
+            int j = i - 1;
+
+            while (j >= from && keys.compare(order[j], index) > 0) {
+                order[j + 1] = order[j];
+                j--;
+            }
+
+            order[j + 1] = index;
+        }
+    }
+
+
+    /**
+     * Sorts a range in parallel: both halves are sorted as separate tasks and then merged.
+     */
+    private static final class SortTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The keys of the elements.
+         */
+        private final SortKeys keys;
+
+        /**
+         * The indexes to sort.
+         */
+        private final int[] order;
+
+        /**
+         * Scratch space holding a copy of {@link #order}.
+         */
+        private final int[] work;
+
+        /**
+         * The first index, inclusive.
+         */
+        private final int from;
+
+        /**
+         * The last index, exclusive.
+         */
+        private final int to;
+
+        /**
+         * Ranges at most this long are sorted sequentially.
+         */
+        private final int granularity;
+
+
+        /**
+         * Creates a new task.
+         *
+         * @param keys        the keys of the elements
+         * @param order       the indexes to sort
+         * @param work        scratch space holding a copy of <em>order</em>
+         * @param from        the first index, inclusive
+         * @param to          the last index, exclusive
+         * @param granularity ranges at most this long are sorted sequentially
+         */
+        SortTask(final SortKeys keys, final int[] order, final int[] work,
+                 final int from, final int to, final int granularity) {
+            this.keys = keys;
+            this.order = order;
+            this.work = work;
+            this.from = from;
+            this.to = to;
+            this.granularity = granularity;
+        }
+
+
+        @Override
+        protected void compute() {
+            if (to - from <= granularity) {
+                sort(keys, order, work, from, to);
+                return;
+            }
+
+            final int middle = (from + to) >>> 1;
+
+            invokeAll(new SortTask(keys, work, order, from, middle, granularity),
+                    new SortTask(keys, work, order, middle, to, granularity));
+
+            merge(keys, work, order, from, middle, to);
+        }
+    }
+}
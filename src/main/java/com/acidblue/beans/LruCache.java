@@ -0,0 +1,190 @@
+package com.acidblue.beans;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A thread safe cache holding at most a fixed number of values, evicting one
+ * of the least recently used when full.
+ * <p/>
+ * Lookups never lock: values are held in a {@link ConcurrentHashMap}, and a
+ * hit only sets the reference bit of its entry, and only if it is not set
+ * already, so threads hitting the same popular keys do not write to shared
+ * memory. Recency is approximated with the CLOCK algorithm: when a value
+ * stored takes the cache over its capacity, a hand sweeps the entries,
+ * clearing set reference bits and evicting the first entry whose bit is
+ * clear. An entry is thus only evicted once it has gone a whole sweep without
+ * being used. Only this eviction takes a lock.
+ * <p/>
+ * Values are computed without any lock, so a slow computation does not block
+ * lookups of other keys. Two threads missing the same key at once may both
+ * compute it; the first value stored is the one kept and returned to both.
+ * Hits, misses and evictions are counted without locking.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+final class LruCache<K, V> {
+
+    /**
+     * The maximum number of values held.
+     */
+    private final int capacity;
+
+    /**
+     * The entries, by key.
+     */
+    private final ConcurrentHashMap<K, Node<K, V>> values = new ConcurrentHashMap<>();
+
+    /**
+     * The hand sweeping the entries for one to evict, or <code>null</code> before the first sweep. Guarded by the
+     * lock of this cache.
+     */
+    private Iterator<Node<K, V>> hand;
+
+    /**
+     * The number of lookups that found a value.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * The number of lookups that computed a value.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * The number of values evicted.
+     */
+    private final LongAdder evictions = new LongAdder();
+
+
+    /**
+     * Creates a new cache.
+     *
+     * @param capacity the maximum number of values held
+     */
+    LruCache(final int capacity) {
+
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+
+        this.capacity = capacity;
+    }
+
+
+    /**
+     * Returns the value of <em>key</em>, computing and storing it if it is not cached.
+     *
+     * @param key     the key
+     * @param compute computes the value of a key; it must not return <code>null</code>
+     * @return the value
+     */
+    V get(final K key, final Function<? super K, ? extends V> compute) {
+        final Node<K, V> node = values.get(key);
+
+        if (node != null) {
+            if (!node.referenced) {
+                node.referenced = true;
+            }
+
+            hits.increment();
+            return node.value;
+        }
+
+        misses.increment();
+
+        final V computed = compute.apply(key);
+        final Node<K, V> existing = values.putIfAbsent(key, new Node<K, V>(key, computed));
+
+        if (existing != null) {
+            return existing.value;
+        }
+
+        if (values.size() > capacity) {
+            evict();
+        }
+
+        return computed;
+    }
+
+
+    /**
+     * Evicts entries until the cache is within its capacity.
+     */
+    private synchronized void evict() {
+        while (values.size() > capacity) {
+            if (hand == null || !hand.hasNext()) {
+                hand = values.values().iterator();
+
+                if (!hand.hasNext()) {
+                    return;
+                }
+            }
+
+            final Node<K, V> node = hand.next();
+
+            if (node.referenced) {
+                // a second chance
+                node.referenced = false;
+            } else if (values.remove(node.key, node)) {
+                evictions.increment();
+            }
+        }
+    }
+
+
+    /**
+     * Removes all values. The statistics are kept.
+     */
+    void clear() {
+        values.clear();
+    }
+
+
+    /**
+     * Returns a snapshot of the statistics of this cache.
+     *
+     * @return the statistics
+     */
+    CacheStatistics statistics() {
+        return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum(), values.size(), capacity);
+    }
+
+
+    /**
+     * A cached value with its reference bit.
+     */
+    private static final class Node<K, V> {
+
+        /**
+         * The key.
+         */
+        final K key;
+
+        /**
+         * The value.
+         */
+        final V value;
+
+        /**
+         * Whether the value was used since the hand last passed it. Set when stored, so that a new value gets a
+         * whole sweep before it can be evicted.
+         */
+        volatile boolean referenced = true;
+
+
+        /**
+         * Creates a new node.
+         *
+         * @param key   the key
+         * @param value the value
+         */
+        Node(final K key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.acidblue.beans;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily merges several sorted iterators into one sorted iterator.
+ * <p/>
+ * Only the current head of each source is held in memory. The heads are
+ * arranged in a tournament tree of losers: every internal node holds the
+ * source that lost the match played there, and the overall winner is kept
+ * apart. Taking the winner and replaying its path from leaf to root costs at
+ * most &lceil;log<sub>2</sub> k&rceil; comparisons for <em>k</em> sources,
+ * against the two per level of a binary heap.
+ * <p/>
+ * Equal elements are returned in the order of their sources, so merging the
+ * consecutive runs of a stable sort is itself stable.
+ *
+ * @see ExternalSorter
+ * @see SortUtil#merge(List, Comparator)
+ */
+final class MergingIterator<E> implements Iterator<E> {
+
+    /**
+     * The sources.
+     */
+    private final Iterator<? extends E>[] sources;
+
+    /**
+     * The comparator the sources are sorted by.
+     */
+    private final Comparator<? super E> comparator;
+
+    /**
+     * The current head of each source.
+     */
+    private final Object[] heads;
+
+    /**
+     * Whether each source is exhausted.
+     */
+    private final boolean[] exhausted;
+
+    /**
+     * The tree: index 0 holds the winning source, index <em>t</em> from 1 on holds the source that lost at
+     * internal node <em>t</em>. The leaf of source <em>s</em> is at <code>s + k</code>.
+     */
+    private final int[] tree;
+
+
+    /**
+     * Creates a new iterator, reading the first element of every source.
+     *
+     * @param sources    the sorted sources, in order of precedence for equal elements
+     * @param comparator the comparator the sources are sorted by
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    MergingIterator(final List<? extends Iterator<? extends E>> sources, final Comparator<? super E> comparator) {
+
+        final int k = sources.size();
+
+        this.sources = sources.toArray(new Iterator[k]);
+        this.comparator = comparator;
+        this.heads = new Object[k];
+        this.exhausted = new boolean[k];
+        this.tree = new int[Math.max(1, k)];
+
+        for (int s = 0; s < k; s++) {
+            advance(s);
+        }
+
+        // every leaf climbs until it finds a free node to wait at, or wins
+        Arrays.fill(tree, -1);
+
+        for (int s = k - 1; s >= 0; s--) {
+            int winner = s;
+
+            for (int t = (s + k) >>> 1; t > 0 && winner >= 0; t >>>= 1) {
+                if (tree[t] < 0) {
+                    tree[t] = winner;
+                    winner = -1;
+                } else if (beats(tree[t], winner)) {
+                    final int loser = winner;
+                    winner = tree[t];
+                    tree[t] = loser;
+                }
+            }
+
+            if (winner >= 0) {
+                tree[0] = winner;
+            }
+        }
+    }
+
+
+    @Override
+    public boolean hasNext() {
+        return sources.length > 0 && !exhausted[tree[0]];
+    }
+
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        final int k = sources.length;
+        int winner = tree[0];
+        final E element = (E) heads[winner];
+
+        advance(winner);
+
+        // replay the matches on the path of the winner's leaf
+        for (int t = (winner + k) >>> 1; t > 0; t >>>= 1) {
+            if (beats(tree[t], winner)) {
+                final int loser = winner;
+                winner = tree[t];
+                tree[t] = loser;
+            }
+        }
+
+        tree[0] = winner;
+
+        return element;
+    }
+
+
+    /**
+     * Reads the next element of a source into its head.
+     *
+     * @param s the source
+     */
+    private void advance(final int s) {
+        if (sources[s].hasNext()) {
+            heads[s] = sources[s].next();
+        } else {
+            heads[s] = null;
+            exhausted[s] = true;
+        }
+    }
+
+
+    /**
+     * Plays a match between the heads of two sources.
+     *
+     * @param a a source
+     * @param b another source
+     * @return <code>true</code> if the head of <em>a</em> comes before that of <em>b</em>; an exhausted source
+     *         loses to any other
+     */
+    @SuppressWarnings("unchecked")
+    private boolean beats(final int a, final int b) {
+        if (exhausted[a] || exhausted[b]) {
+            return !exhausted[a] || (exhausted[b] && a < b);
+        }
+
+        final int result = comparator.compare((E) heads[a], (E) heads[b]);
+
+        return result < 0 || (result == 0 && a < b);
+    }
+}
@@ -0,0 +1,334 @@
+package com.acidblue.beans;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Encodes the sort properties of a bean into a byte-comparable key.
+ * <p/>
+ * Two keys compare, byte by byte as unsigned values, in the same order as
+ * the beans they were encoded from compare by their properties. Once encoded,
+ * ordering beans needs no getters and no comparator chain; keys can be
+ * cached, written to disk and radix sorted.
+ * <pre>
+ *      NormalizedKeyEncoder&lt;PersonBean&gt; encoder = new NormalizedKeyEncoder&lt;&gt;(
+ *              SortProperty.ascending("lastName"),
+ *              SortProperty.descending("age"));
+ * <p/>
+ *      byte[] k1 = encoder.encode(person1);
+ *      byte[] k2 = encoder.encode(person2);
+ * <p/>
+ *      // same sign as comparing the beans on lastName, then age descending
+ *      NormalizedKeyEncoder.compare(k1, k2);
+ * </pre>
+ * <p/>
+ * Each property is encoded as a marker byte placing <code>null</code> first
+ * or last, followed by the value:
+ * <ul>
+ * <li><code>String</code>: one byte per character below <code>0x7F</code>,
+ * three bytes for others, and a terminating zero byte; this orders exactly
+ * as {@link String#compareTo(String)}</li>
+ * <li><code>int</code>, <code>short</code>, <code>byte</code>,
+ * <code>char</code>, <code>long</code> and their wrappers: big-endian with
+ * the sign bit flipped</li>
+ * <li><code>double</code>, <code>float</code> and their wrappers: the bits
+ * transformed to order as {@link Double#compare(double, double)}</li>
+ * <li><code>boolean</code>, enums (by ordinal),
+ * {@link Date}, {@link Instant} and {@link LocalDate}</li>
+ * </ul>
+ * The bytes of a descending property are inverted. Values of other types
+ * cannot be encoded.
+ *
+ * @param <T> the bean type
+ * @see SortProperty
+ */
+public final class NormalizedKeyEncoder<T> {
+
+    /**
+     * Marks a <code>null</code> placed first.
+     */
+    private static final byte NULL_FIRST = 0x00;
+
+    /**
+     * Marks a present value.
+     */
+    private static final byte PRESENT = 0x01;
+
+    /**
+     * Marks a <code>null</code> placed last.
+     */
+    private static final byte NULL_LAST = 0x02;
+
+
+    /**
+     * The properties to encode, most significant first.
+     */
+    private final SortProperty[] properties;
+
+
+    /**
+     * Creates an encoder for the given properties.
+     *
+     * @param first the most significant property
+     * @param rest  any other properties (order is preserved)
+     */
+    public NormalizedKeyEncoder(final SortProperty first, final SortProperty... rest) {
+
+        if (first == null) {
+            throw new NullPointerException("first was null");
+        }
+
+        this.properties = new SortProperty[rest.length + 1];
+        this.properties[0] = first;
+
+        for (int i = 0; i < rest.length; i++) {
+            if (rest[i] == null) {
+                throw new NullPointerException("rest contained null");
+            }
+
+            this.properties[i + 1] = rest[i];
+        }
+    }
+
+
+    /**
+     * Creates an encoder for the given properties, all in ascending order.
+     * Keys encoded by it order the same way as the comparator returned by
+     * {@link ComparatorFactory#create(String, String, String...)} for the same
+     * properties.
+     *
+     * @param first the most significant property
+     * @param rest  any other properties (order is preserved)
+     * @param <T>   the bean type
+     * @return a new encoder
+     */
+    public static <T> NormalizedKeyEncoder<T> create(final String first, final String... rest) {
+
+        final SortProperty[] others = new SortProperty[rest.length];
+
+        for (int i = 0; i < rest.length; i++) {
+            others[i] = SortProperty.ascending(rest[i]);
+        }
+
+        return new NormalizedKeyEncoder<T>(SortProperty.ascending(first), others);
+    }
+
+
+    /**
+     * Compares two keys as unsigned bytes.
+     *
+     * @param k1 the key to compare
+     * @param k2 the key to compare to
+     * @return a negative number, zero or a positive number if <em>k1</em> is less than, equal to or greater than
+     *         <em>k2</em>
+     */
+    public static int compare(final byte[] k1, final byte[] k2) {
+        return Arrays.compareUnsigned(k1, k2);
+    }
+
+
+    /**
+     * Encodes the sort properties of <em>bean</em>.
+     *
+     * @param bean the bean
+     * @return the key
+     * @throws IllegalArgumentException if a property cannot be read or its value cannot be encoded
+     */
+    public byte[] encode(final T bean) {
+        final Buffer buffer = new Buffer();
+
+        for (final SortProperty property : properties) {
+            final PropertyAccessor accessor = BeanPropertyUtil.getAccessor(property.getName(), bean);
+            final int start;
+
+            try {
+                switch (accessor.getKind()) {
+                    case INT:
+                        buffer.put(PRESENT);
+                        start = buffer.size;
+                        buffer.putInt(accessor.getInt(bean) ^ Integer.MIN_VALUE);
+                        break;
+                    case LONG:
+                        buffer.put(PRESENT);
+                        start = buffer.size;
+                        buffer.putLong(accessor.getLong(bean) ^ Long.MIN_VALUE);
+                        break;
+                    case DOUBLE:
+                        buffer.put(PRESENT);
+                        start = buffer.size;
+                        buffer.putLong(sortableBits(accessor.getDouble(bean)));
+                        break;
+                    default:
+                        final Object value = accessor.get(bean);
+
+                        if (value == null) {
+                            buffer.put(property.isNullsFirst() ? NULL_FIRST : NULL_LAST);
+                            continue;
+                        }
+
+                        buffer.put(PRESENT);
+                        start = buffer.size;
+                        encodeValue(property.getName(), value, buffer);
+                }
+            }
+            catch (IllegalArgumentException exception) {
+                throw exception;
+            }
+            catch (RuntimeException exception) {
+                throw new IllegalArgumentException(String.format("Problem accessing property '%s': %s",
+                        property.getName(), exception.getMessage()), exception);
+            }
+
+            if (property.isDescending()) {
+                buffer.invert(start);
+            }
+        }
+
+        return buffer.toByteArray();
+    }
+
+
+    /**
+     * Encodes a non-<code>null</code> value.
+     *
+     * @param name   the property name
+     * @param value  the value
+     * @param buffer where to write the encoded value
+     * @throws IllegalArgumentException if the value cannot be encoded
+     */
+    private static void encodeValue(final String name, final Object value, final Buffer buffer) {
+        if (value instanceof String) {
+            final String string = (String) value;
+
+            for (int i = 0; i < string.length(); i++) {
+                final char c = string.charAt(i);
+
+                if (c < 0x7F) {
+                    buffer.put((byte) (c + 1));
+                } else {
+                    buffer.put((byte) 0x80);
+                    buffer.put((byte) (c >>> 8));
+                    buffer.put((byte) c);
+                }
+            }
+
+            buffer.put((byte) 0);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            buffer.putInt(((Number) value).intValue() ^ Integer.MIN_VALUE);
+        } else if (value instanceof Character) {
+            // as a primitive char, which is read as an int
+            buffer.putInt((Character) value ^ Integer.MIN_VALUE);
+        } else if (value instanceof Long) {
+            buffer.putLong((Long) value ^ Long.MIN_VALUE);
+        } else if (value instanceof Double || value instanceof Float) {
+            buffer.putLong(sortableBits(((Number) value).doubleValue()));
+        } else if (value instanceof Boolean) {
+            buffer.put((Boolean) value ? (byte) 1 : (byte) 0);
+        } else if (value instanceof Enum) {
+            buffer.putInt(((Enum<?>) value).ordinal() ^ Integer.MIN_VALUE);
+        } else if (value instanceof Date) {
+            buffer.putLong(((Date) value).getTime() ^ Long.MIN_VALUE);
+        } else if (value instanceof Instant) {
+            buffer.putLong(((Instant) value).getEpochSecond() ^ Long.MIN_VALUE);
+            buffer.putInt(((Instant) value).getNano());
+        } else if (value instanceof LocalDate) {
+            buffer.putLong(((LocalDate) value).toEpochDay() ^ Long.MIN_VALUE);
+        } else {
+            throw new IllegalArgumentException(String.format("Cannot encode property '%s' of type %s",
+                    name, value.getClass().getName()));
+        }
+    }
+
+
+    /**
+     * Returns the bits of <em>value</em> transformed so that they order, as unsigned numbers, the same way as
+     * {@link Double#compare(double, double)}.
+     *
+     * @param value the value
+     * @return the sortable bits
+     */
+    static long sortableBits(final double value) {
+        final long bits = Double.doubleToLongBits(value);
+
+        return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+    }
+
+
+    /**
+     * A growable byte array.
+     */
+    private static final class Buffer {
+
+        /**
+         * The bytes.
+         */
+        private byte[] bytes = new byte[64];
+
+        /**
+         * The number of bytes written.
+         */
+        private int size;
+
+
+        /**
+         * Appends a byte.
+         *
+         * @param b the byte
+         */
+        void put(final byte b) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size << 1);
+            }
+
+            bytes[size++] = b;
+        }
+
+
+        /**
+         * Appends an <code>int</code>, big-endian.
+         *
+         * @param value the value
+         */
+        void putInt(final int value) {
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                put((byte) (value >>> shift));
+            }
+        }
+
+
+        /**
+         * Appends a <code>long</code>, big-endian.
+         *
+         * @param value the value
+         */
+        void putLong(final long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                put((byte) (value >>> shift));
+            }
+        }
+
+
+        /**
+         * Inverts every byte written from <em>start</em> on.
+         *
+         * @param start the index of the first byte to invert
+         */
+        void invert(final int start) {
+            for (int i = start; i < size; i++) {
+                bytes[i] = (byte) ~bytes[i];
+            }
+        }
+
+
+        /**
+         * Returns the bytes written.
+         *
+         * @return a copy of the bytes
+         */
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.acidblue.beans;
+
+import java.util.Arrays;
+
+/**
+ * Sorts a permutation of elements by primitive keys with a least significant
+ * digit radix sort.
+ * <p/>
+ * Every key column is converted by {@link SortableBits} into
+ * <code>long</code> keys ordered like the values. The columns are then sorted
+ * from the least significant to the most significant, one byte at a time with
+ * a stable counting sort, each pass moving the keys together with the element
+ * indexes. The counts of all eight bytes of a column are taken in a single
+ * pass, and bytes that all keys share, such as the high bytes of timestamps
+ * close together or of any <code>int</code>, are skipped.
+ * <p/>
+ * If the most significant keys are already in order the elements are left as
+ * they are, without any pass. Fewer than {@link #RADIX_THRESHOLD} elements, and
+ * keys with a column that is not primitive, are sorted by {@link IndexSorter}.
+ * The sort is stable and gives the same order as {@link IndexSorter}.
+ *
+ * @see SortUtil#primitiveSort(java.util.List, String, String...)
+ */
+final class PrimitiveRadixSorter {
+
+    /**
+     * Fewer elements than this are sorted by comparison.
+     */
+    private static final int RADIX_THRESHOLD = 1 << 10;
+
+    /**
+     * Converts the key columns.
+     */
+    private static final SortableBits BITS = SortableBits.create();
+
+
+    /**
+     * Utility class; cannot be instantiated.
+     */
+    private PrimitiveRadixSorter() {
+    }
+
+
+    /**
+     * Returns the indexes of <em>size</em> elements in the order of their keys. Elements with equal keys keep
+     * their relative order.
+     *
+     * @param keys the keys of the elements
+     * @param size the number of elements
+     * @return the indexes of the elements, in sorted order
+     */
+    static int[] sort(final SortKeys keys, final int size) {
+        if (size < RADIX_THRESHOLD) {
+            return IndexSorter.sort(keys, size);
+        }
+
+        final long[][] columns = new long[keys.width()][];
+
+        for (int c = 0; c < columns.length; c++) {
+            columns[c] = BITS.of(keys.column(c));
+
+            if (columns[c] == null) {
+                return IndexSorter.sort(keys, size);
+            }
+        }
+
+        int[] order = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+
+        // in order if the most significant keys are, with ties only allowed when there is nothing else to compare
+        if (BITS.isSorted(columns[0], columns.length > 1)) {
+            return order;
+        }
+
+        int[] work = new int[size];
+        long[] sorted = new long[size];
+        long[] spare = new long[size];
+        final int[][] counts = new int[Long.BYTES][256];
+
+        for (int c = columns.length - 1; c >= 0; c--) {
+            final long[] column = columns[c];
+
+            for (int i = 0; i < size; i++) {
+                sorted[i] = column[order[i]];
+            }
+
+            count(sorted, counts);
+
+            for (int digit = 0; digit < Long.BYTES; digit++) {
+                final int shift = digit << 3;
+                final int[] count = counts[digit];
+
+                if (count[(int) (sorted[0] >>> shift) & 0xFF] == size) {
+                    continue;
+                }
+
+                int start = 0;
+
+                for (int b = 0; b < 256; b++) {
+                    final int n = count[b];
+                    count[b] = start;
+                    start += n;
+                }
+
+                for (int i = 0; i < size; i++) {
+                    final long key = sorted[i];
+                    final int position = count[(int) (key >>> shift) & 0xFF]++;
+
+                    spare[position] = key;
+                    work[position] = order[i];
+                }
+
+                final long[] keysSwap = sorted;
+                sorted = spare;
+                spare = keysSwap;
+
+                final int[] orderSwap = order;
+                order = work;
+                work = orderSwap;
+            }
+        }
+
+        return order;
+    }
+
+
+    /**
+     * Counts the occurrences of every value of every byte of the keys.
+     *
+     * @param keys   the keys
+     * @param counts receives, for each byte from the least significant, the number of keys with each value
+     */
+    private static void count(final long[] keys, final int[][] counts) {
+        for (final int[] count : counts) {
+            Arrays.fill(count, 0);
+        }
+
+        final int[] c0 = counts[0];
+        final int[] c1 = counts[1];
+        final int[] c2 = counts[2];
+        final int[] c3 = counts[3];
+        final int[] c4 = counts[4];
+        final int[] c5 = counts[5];
+        final int[] c6 = counts[6];
+        final int[] c7 = counts[7];
+
+        for (final long key : keys) {
+            c0[(int) key & 0xFF]++;
+            c1[(int) (key >>> 8) & 0xFF]++;
+            c2[(int) (key >>> 16) & 0xFF]++;
+            c3[(int) (key >>> 24) & 0xFF]++;
+            c4[(int) (key >>> 32) & 0xFF]++;
+            c5[(int) (key >>> 40) & 0xFF]++;
+            c6[(int) (key >>> 48) & 0xFF]++;
+            c7[(int) (key >>> 56) & 0xFF]++;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.acidblue.beans;
+
+import java.lang.reflect.Method;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * A resolved read accessor for a single property of a single class.
+ * <p/>
+ * Instances are created once per class/property pair by
+ * {@link BeanPropertyUtil} and then shared; the underlying read method has
+ * already been located and compiled to a {@link Function} so that reading the
+ * property costs no more than a direct getter call.
+ * <p/>
+ * Properties of a primitive type can also be read without boxing through
+ * {@link #getInt(Object)}, {@link #getLong(Object)} or
+ * {@link #getDouble(Object)}, depending on their {@link #getKind() kind}.
+ *
+ * @see BeanPropertyUtil
+ */
+final class PropertyAccessor {
+
+    /**
+     * How a property's values can be read and compared.
+     */
+    enum Kind {
+        /**
+         * An <code>int</code>, <code>short</code>, <code>byte</code> or <code>char</code> property.
+         */
+        INT,
+        /**
+         * A <code>long</code> property.
+         */
+        LONG,
+        /**
+         * A <code>double</code> or <code>float</code> property.
+         */
+        DOUBLE,
+        /**
+         * Any other property; values are read as objects.
+         */
+        OBJECT
+    }
+
+
+    /**
+     * The class this accessor was resolved for.
+     */
+    private final Class<?> owner;
+
+    /**
+     * The property name (or path) this accessor reads.
+     */
+    private final String name;
+
+    /**
+     * The read method of the property, or <code>null</code> if it is read from a field.
+     */
+    private final Method method;
+
+    /**
+     * The declared type of the property.
+     */
+    private final Class<?> type;
+
+    /**
+     * The kind of the property.
+     */
+    private final Kind kind;
+
+    /**
+     * The compiled form of {@link #method}.
+     */
+    private final Function<Object, Object> getter;
+
+    /**
+     * The unboxed form of {@link #getter} for {@link Kind#INT} properties.
+     */
+    private final ToIntFunction<Object> intGetter;
+
+    /**
+     * The unboxed form of {@link #getter} for {@link Kind#LONG} properties.
+     */
+    private final ToLongFunction<Object> longGetter;
+
+    /**
+     * The unboxed form of {@link #getter} for {@link Kind#DOUBLE} properties.
+     */
+    private final ToDoubleFunction<Object> doubleGetter;
+
+
+    /**
+     * Creates a new accessor.
+     *
+     * @param owner        the class the accessor is resolved for
+     * @param name         the property name
+     * @param method       the read method
+     * @param getter       the compiled read method
+     * @param intGetter    the unboxed read method of an {@link Kind#INT} property, otherwise <code>null</code>
+     * @param longGetter   the unboxed read method of a {@link Kind#LONG} property, otherwise <code>null</code>
+     * @param doubleGetter the unboxed read method of a {@link Kind#DOUBLE} property, otherwise <code>null</code>
+     */
+    PropertyAccessor(final Class<?> owner, final String name, final Method method,
+                     final Function<Object, Object> getter, final ToIntFunction<Object> intGetter,
+                     final ToLongFunction<Object> longGetter, final ToDoubleFunction<Object> doubleGetter) {
+
+        this(owner, name, method, method.getReturnType(), getter, intGetter, longGetter, doubleGetter);
+    }
+
+
+    /**
+     * Creates a new accessor for a value of the given declared type, such as the end of a property path.
+     *
+     * @param owner        the class the accessor is resolved for
+     * @param name         the property name or path
+     * @param method       the read method of the value, or <code>null</code> if it is only known at run time or the
+     *                     value is read from a field
+     * @param type         the declared type of the value
+     * @param getter       the compiled read method
+     * @param intGetter    the unboxed read method of an {@link Kind#INT} property, otherwise <code>null</code>
+     * @param longGetter   the unboxed read method of a {@link Kind#LONG} property, otherwise <code>null</code>
+     * @param doubleGetter the unboxed read method of a {@link Kind#DOUBLE} property, otherwise <code>null</code>
+     */
+    PropertyAccessor(final Class<?> owner, final String name, final Method method, final Class<?> type,
+                     final Function<Object, Object> getter, final ToIntFunction<Object> intGetter,
+                     final ToLongFunction<Object> longGetter, final ToDoubleFunction<Object> doubleGetter) {
+
+        this.owner = owner;
+        this.name = name;
+        this.method = method;
+        this.type = type;
+        this.kind = kindOf(type);
+        this.getter = getter;
+        this.intGetter = intGetter;
+        this.longGetter = longGetter;
+        this.doubleGetter = doubleGetter;
+    }
+
+
+    /**
+     * Returns the kind of values of the given type.
+     *
+     * @param type the declared type of a property
+     * @return the kind of the property
+     */
+    static Kind kindOf(final Class<?> type) {
+        if (type == int.class || type == short.class || type == byte.class || type == char.class) {
+            return Kind.INT;
+        } else if (type == long.class) {
+            return Kind.LONG;
+        } else if (type == double.class || type == float.class) {
+            return Kind.DOUBLE;
+        }
+
+        return Kind.OBJECT;
+    }
+
+
+    /**
+     * Returns the class this accessor was resolved for. Instances of subclasses may resolve to other accessors.
+     *
+     * @return the class the accessor is resolved for
+     */
+    Class<?> getOwner() {
+        return owner;
+    }
+
+
+    /**
+     * Returns the name of the property this accessor reads.
+     *
+     * @return the property name
+     */
+    String getName() {
+        return name;
+    }
+
+
+    /**
+     * Returns the read method this accessor was compiled from. For a property path this is the read method of its
+     * last segment, or <code>null</code> if that is only known at run time. It is also <code>null</code> if the property
+     * is read from a field.
+     *
+     * @return the read method
+     */
+    Method getMethod() {
+        return method;
+    }
+
+
+    /**
+     * Returns the declared type of the property.
+     *
+     * @return the declared type, <code>Object.class</code> if it is only known at run time
+     */
+    Class<?> getType() {
+        return type;
+    }
+
+
+    /**
+     * Returns the kind of the property.
+     *
+     * @return the kind of the property
+     */
+    Kind getKind() {
+        return kind;
+    }
+
+
+    /**
+     * Reads the property from <em>instance</em>. Primitive values are boxed.
+     *
+     * @param instance the bean to read from
+     * @return the value of the property
+     */
+    Object get(final Object instance) {
+        return getter.apply(instance);
+    }
+
+
+    /**
+     * Reads an {@link Kind#INT} property from <em>instance</em>.
+     *
+     * @param instance the bean to read from
+     * @return the value of the property
+     */
+    int getInt(final Object instance) {
+        return intGetter.applyAsInt(instance);
+    }
+
+
+    /**
+     * Reads a {@link Kind#LONG} property from <em>instance</em>.
+     *
+     * @param instance the bean to read from
+     * @return the value of the property
+     */
+    long getLong(final Object instance) {
+        return longGetter.applyAsLong(instance);
+    }
+
+
+    /**
+     * Reads a {@link Kind#DOUBLE} property from <em>instance</em>.
+     *
+     * @param instance the bean to read from
+     * @return the value of the property
+     */
+    double getDouble(final Object instance) {
+        return doubleGetter.applyAsDouble(instance);
+    }
+}
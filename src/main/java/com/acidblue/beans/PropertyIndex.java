@@ -0,0 +1,321 @@
+package com.acidblue.beans;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A read-only index of beans sorted by one or more of their properties.
+ * <p/>
+ * The properties of every bean are read once, when the index is built, and
+ * kept in compact key columns (primitive properties in primitive arrays)
+ * sorted together with the beans. Lookups then binary search the keys without
+ * calling any getters:
+ * <pre>
+ *      PropertyIndex&lt;PersonBean&gt; byName = PropertyIndex.build(people, "lastName", "firstName");
+ * <p/>
+ *      byName.get("Washington");            // every Washington, by first name
+ *      byName.get("Washington", "George");  // exact match on both properties
+ *      byName.range("A", "C");              // last names from "A" inclusive to "C" exclusive
+ *      byName.ceiling("Bu");                // the first bean from "Bu" on
+ * </pre>
+ * <p/>
+ * A key is a list of property values, most significant first. It may be
+ * shorter than the list of properties, in which case only the leading
+ * properties are compared. Keys and beans are ordered the same way as by a
+ * comparator from {@link ComparatorFactory} for the same properties, and
+ * beans with equal keys keep their order in the source collection. A number
+ * may be given for a primitive property of another numeric type, such as
+ * <code>2</code> for a <code>long</code> or <code>5</code> for a
+ * <code>double</code>, though integral properties only take integral
+ * numbers. Lookups by a value that cannot be compared with its property
+ * throw an <code>IllegalArgumentException</code>.
+ * <p/>
+ * An index never changes once built, so it can be read by any number of
+ * threads. When the beans change, {@link #rebuild(Collection)} builds a new
+ * index over the same properties in one pass.
+ *
+ * @param <E> the bean type
+ * @see SortUtil#keySort(List, String, String...)
+ */
+public final class PropertyIndex<E> {
+
+    /**
+     * The properties indexed, most significant first.
+     */
+    private final String[] properties;
+
+    /**
+     * The beans, in sorted order.
+     */
+    private final List<E> elements;
+
+    /**
+     * The keys of the beans, in the same order.
+     */
+    private final SortKeys keys;
+
+
+    /**
+     * Creates a new index.
+     *
+     * @param properties the properties indexed
+     * @param elements   the beans, in sorted order
+     * @param keys       the keys of the beans, in the same order
+     */
+    private PropertyIndex(final String[] properties, final List<E> elements, final SortKeys keys) {
+        this.properties = properties;
+        this.elements = elements;
+        this.keys = keys;
+    }
+
+
+    /**
+     * Builds an index of <em>source</em> by the given properties.
+     *
+     * @param source the beans to index
+     * @param first  the most significant property
+     * @param rest   any other properties (order is preserved)
+     * @param <E>    the bean type
+     * @return the index
+     * @throws IllegalArgumentException if a property cannot be read from a bean
+     */
+    public static <E> PropertyIndex<E> build(final Collection<? extends E> source, final String first,
+                                             final String... rest) {
+
+        if (first == null) {
+            throw new NullPointerException("first was null");
+        }
+
+        final String[] properties = new String[rest.length + 1];
+        properties[0] = first;
+
+        for (int i = 0; i < rest.length; i++) {
+            if (rest[i] == null) {
+                throw new NullPointerException("rest contained null");
+            }
+
+            properties[i + 1] = rest[i];
+        }
+
+        return build(source, properties);
+    }
+
+
+    /**
+     * Builds an index of <em>source</em> by the same properties as this index.
+     *
+     * @param source the beans to index
+     * @return the new index
+     * @throws IllegalArgumentException if a property cannot be read from a bean
+     */
+    public PropertyIndex<E> rebuild(final Collection<? extends E> source) {
+        return build(source, properties);
+    }
+
+
+    /**
+     * Builds an index.
+     *
+     * @param source     the beans to index
+     * @param properties the properties to index, most significant first
+     * @param <E>        the bean type
+     * @return the index
+     */
+    @SuppressWarnings("unchecked")
+    private static <E> PropertyIndex<E> build(final Collection<? extends E> source, final String[] properties) {
+        if (source == null) {
+            throw new NullPointerException("source was null");
+        }
+
+        final Object[] unsorted = source.toArray();
+        final SortKeys unsortedKeys = new SortKeys(unsorted, properties);
+        final int[] order = IndexSorter.sort(unsortedKeys, unsorted.length);
+        final Object[] sorted = new Object[unsorted.length];
+
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = unsorted[order[i]];
+        }
+
+        return new PropertyIndex<E>(properties,
+                Collections.unmodifiableList(Arrays.asList((E[]) sorted)), unsortedKeys.permute(order));
+    }
+
+
+    /**
+     * Returns the number of beans in the index.
+     *
+     * @return the number of beans
+     */
+    public int size() {
+        return elements.size();
+    }
+
+
+    /**
+     * Returns all beans, in sorted order.
+     *
+     * @return an unmodifiable list of the beans
+     */
+    public List<E> elements() {
+        return elements;
+    }
+
+
+    /**
+     * Returns the beans whose properties equal <em>key</em>.
+     *
+     * @param key the property values, most significant first
+     * @return an unmodifiable list of the matching beans, in sorted order
+     * @throws IllegalArgumentException if <em>key</em> is empty, longer than the list of properties or holds a
+     *                                  value that cannot be compared with its property
+     */
+    public List<E> get(final Object... key) {
+        check(key);
+
+        return elements.subList(lowerBound(key), upperBound(key));
+    }
+
+
+    /**
+     * Returns the beans whose properties are at least <em>from</em> and less than <em>to</em>.
+     *
+     * @param from the lowest key, inclusive
+     * @param to   the highest key, exclusive
+     * @return an unmodifiable list of the matching beans, in sorted order
+     */
+    public List<E> range(final Object from, final Object to) {
+        return range(new Object[]{from}, true, new Object[]{to}, false);
+    }
+
+
+    /**
+     * Returns the beans whose properties fall between two keys.
+     *
+     * @param from          the lowest key, most significant property first
+     * @param fromInclusive whether beans equal to <em>from</em> are included
+     * @param to            the highest key, most significant property first
+     * @param toInclusive   whether beans equal to <em>to</em> are included
+     * @return an unmodifiable list of the matching beans, in sorted order; empty if <em>from</em> is greater than
+     *         <em>to</em>
+     * @throws IllegalArgumentException if a key is empty, longer than the list of properties or holds a value
+     *                                  that cannot be compared with its property
+     */
+    public List<E> range(final Object[] from, final boolean fromInclusive,
+                         final Object[] to, final boolean toInclusive) {
+        check(from);
+        check(to);
+
+        final int start = fromInclusive ? lowerBound(from) : upperBound(from);
+        final int end = toInclusive ? upperBound(to) : lowerBound(to);
+
+        return elements.subList(start, Math.max(start, end));
+    }
+
+
+    /**
+     * Returns the last bean whose properties are less than or equal to <em>key</em>.
+     *
+     * @param key the property values, most significant first
+     * @return the bean, or <code>null</code> if there is none
+     * @throws IllegalArgumentException if <em>key</em> is empty, longer than the list of properties or holds a
+     *                                  value that cannot be compared with its property
+     */
+    public E floor(final Object... key) {
+        check(key);
+
+        final int i = upperBound(key);
+
+        return i == 0 ? null : elements.get(i - 1);
+    }
+
+
+    /**
+     * Returns the first bean whose properties are greater than or equal to <em>key</em>.
+     *
+     * @param key the property values, most significant first
+     * @return the bean, or <code>null</code> if there is none
+     * @throws IllegalArgumentException if <em>key</em> is empty, longer than the list of properties or holds a
+     *                                  value that cannot be compared with its property
+     */
+    public E ceiling(final Object... key) {
+        check(key);
+
+        final int i = lowerBound(key);
+
+        return i == elements.size() ? null : elements.get(i);
+    }
+
+
+    /**
+     * Returns the index of the first bean whose key is not less than <em>key</em>.
+     *
+     * @param key the key
+     * @return the index, or the number of beans if all are less
+     */
+    private int lowerBound(final Object[] key) {
+        int low = 0;
+        int high = elements.size();
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (keys.compare(middle, key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+
+    /**
+     * Returns the index of the first bean whose key is greater than <em>key</em>.
+     *
+     * @param key the key
+     * @return the index, or the number of beans if none is greater
+     */
+    private int upperBound(final Object[] key) {
+        int low = 0;
+        int high = elements.size();
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (keys.compare(middle, key) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+
+    /**
+     * Checks the length of a key.
+     *
+     * @param key the key
+     * @throws IllegalArgumentException if <em>key</em> is empty or longer than the list of properties
+     */
+    private void check(final Object[] key) {
+        if (key == null) {
+            throw new NullPointerException("key was null");
+        }
+
+        if (key.length == 0 || key.length > keys.width()) {
+            throw new IllegalArgumentException(String.format("Key must have 1 to %d values: %s",
+                    keys.width(), Arrays.toString(key)));
+        }
+    }
+
+
+    @Override
+    public String toString() {
+        return "PropertyIndex" + Arrays.toString(properties) + ", size=" + elements.size();
+    }
+}
@@ -0,0 +1,144 @@
+package com.acidblue.beans;
+
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Composes the accessors of the segments of a dotted property path, such as
+ * <code>customer.address.city</code>, into a single accessor.
+ * <p/>
+ * The composed functions call the already compiled accessor of every segment
+ * in turn, checking for <code>null</code> between segments, so reading a path
+ * costs about as much as the chain of getter calls it stands for. A path
+ * ending in a primitive property keeps its primitive accessor, unless it is
+ * null-safe.
+ *
+ * @see BeanPropertyUtil#getProperty(String, Object, boolean)
+ */
+final class PropertyPath {
+
+    /**
+     * Utility class; cannot be instantiated.
+     */
+    private PropertyPath() {
+    }
+
+
+    /**
+     * Composes the accessor of a path.
+     *
+     * @param owner    the class the path starts from
+     * @param path     the path
+     * @param nullSafe whether a <code>null</code> part way along the path yields <code>null</code>
+     * @param segments the segments of the path
+     * @param steps    the accessor of each segment, resolved from the declared type of the previous one; the
+     *                 trailing segments whose accessor is only known at run time are <code>null</code>
+     * @return the accessor of the path
+     */
+    static PropertyAccessor compile(final Class<?> owner, final String path, final boolean nullSafe,
+                                    final String[] segments, final PropertyAccessor[] steps) {
+        final int last = segments.length - 1;
+
+        Function<Object, Object> prefix = null;
+
+        for (int i = 0; i < last; i++) {
+            prefix = prefix == null
+                    ? step(segments[i], steps[i])
+                    : then(prefix, step(segments[i], steps[i]), segments[i - 1], nullSafe);
+        }
+
+        final PropertyAccessor end = steps[last];
+        final Function<Object, Object> getter = prefix == null
+                ? step(segments[last], end)
+                : then(prefix, step(segments[last], end), segments[last - 1], nullSafe);
+
+        if (end == null) {
+            return new PropertyAccessor(owner, path, null, Object.class, getter, null, null, null);
+        }
+
+        final Class<?> type = end.getType();
+
+        if (nullSafe || prefix == null || end.getKind() == PropertyAccessor.Kind.OBJECT) {
+            return new PropertyAccessor(owner, path, end.getMethod(),
+                    nullSafe && type.isPrimitive() ? Object.class : type, getter, null, null, null);
+        }
+
+        final Function<Object, Object> parent = prefix;
+        final String before = segments[last - 1];
+
+        switch (end.getKind()) {
+            case INT:
+                return new PropertyAccessor(owner, path, end.getMethod(), type, getter,
+                        (ToIntFunction<Object>) instance -> end.getInt(check(parent.apply(instance), before)),
+                        null, null);
+            case LONG:
+                return new PropertyAccessor(owner, path, end.getMethod(), type, getter, null,
+                        (ToLongFunction<Object>) instance -> end.getLong(check(parent.apply(instance), before)),
+                        null);
+            default:
+                return new PropertyAccessor(owner, path, end.getMethod(), type, getter, null, null,
+                        (ToDoubleFunction<Object>) instance ->
+                                end.getDouble(check(parent.apply(instance), before)));
+        }
+    }
+
+
+    /**
+     * Returns the function reading a single segment.
+     *
+     * @param segment  the segment name
+     * @param accessor its accessor if known up front, otherwise <code>null</code>
+     * @return the function reading the segment from a non-<code>null</code> value
+     */
+    private static Function<Object, Object> step(final String segment, final PropertyAccessor accessor) {
+        if (accessor != null) {
+            return accessor::get;
+        }
+
+        return value -> BeanPropertyUtil.getAccessor(segment, value.getClass()).get(value);
+    }
+
+
+    /**
+     * Chains two functions, checking the intermediate value for <code>null</code>.
+     *
+     * @param first    the first function
+     * @param next     the function applied to the result of the first
+     * @param segment  the segment read by <em>first</em>, for error messages
+     * @param nullSafe whether a <code>null</code> intermediate value yields <code>null</code>
+     * @return the chained function
+     */
+    private static Function<Object, Object> then(final Function<Object, Object> first,
+                                                 final Function<Object, Object> next,
+                                                 final String segment,
+                                                 final boolean nullSafe) {
+        if (nullSafe) {
+            return instance -> {
+                final Object value = first.apply(instance);
+
+                return value == null ? null : next.apply(value);
+            };
+        }
+
+        return instance -> next.apply(check(first.apply(instance), segment));
+    }
+
+
+    /**
+     * Checks that an intermediate value of a path is not <code>null</code>.
+     *
+     * @param value   the value
+     * @param segment the segment the value was read from, for error messages
+     * @return the value
+     * @throws NullPointerException if the value is <code>null</code>; callers report it against the whole path
+     */
+    private static Object check(final Object value, final String segment) {
+        if (value == null) {
+            throw new NullPointerException("'" + segment + "' was null");
+        }
+
+        return value;
+    }
+}
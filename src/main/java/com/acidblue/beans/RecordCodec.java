@@ -0,0 +1,51 @@
+package com.acidblue.beans;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes beans to, and reads them back from, a binary stream.
+ * <p/>
+ * Used by {@link SortUtil#externalSort(java.util.Iterator, RecordCodec, int, String, String...)}
+ * to spill sorted runs of beans to temporary files. A codec must read back
+ * exactly the bytes it wrote for a record, and the bean it reads must have
+ * the same sort properties as the bean that was written.
+ *
+ * <pre>
+ *      RecordCodec&lt;PersonBean&gt; codec = new RecordCodec&lt;&gt;() {
+ *          public void write(PersonBean person, DataOutput out) throws IOException {
+ *              out.writeUTF(person.getFirstName());
+ *              out.writeUTF(person.getLastName());
+ *          }
+ * <p/>
+ *          public PersonBean read(DataInput in) throws IOException {
+ *              return new PersonBean(in.readUTF(), in.readUTF());
+ *          }
+ *      };
+ * </pre>
+ *
+ * @param <E> the bean type
+ * @see SortUtil#externalSort(java.util.Iterator, RecordCodec, int, String, String...)
+ */
+public interface RecordCodec<E> {
+
+    /**
+     * Writes a single bean.
+     *
+     * @param record the bean to write
+     * @param out    the stream to write to
+     * @throws IOException if the bean cannot be written
+     */
+    void write(E record, DataOutput out) throws IOException;
+
+
+    /**
+     * Reads a single bean, previously written by {@link #write(Object, DataOutput)}.
+     *
+     * @param in the stream to read from
+     * @return the bean
+     * @throws IOException if the bean cannot be read
+     */
+    E read(DataInput in) throws IOException;
+}
@@ -0,0 +1,59 @@
+package com.acidblue.beans;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JDK Flight Recorder event recording one sort by {@link SortUtil}.
+ * <p/>
+ * The event is only committed while a recording enabling
+ * <code>com.acidblue.beans.Sort</code> is running, and only for sorts taking
+ * longer than the threshold of that recording, so slow sort specifications
+ * can be caught in production:
+ * <pre>
+ *      java -XX:StartFlightRecording:com.acidblue.beans.Sort#threshold=10ms ...
+ * </pre>
+ */
+@Name("com.acidblue.beans.Sort")
+@Label("Bean Sort")
+@Category("Comparator Factory")
+@Description("A list sorted by bean properties")
+final class SortEvent extends Event {
+
+    @Label("Method")
+    @Description("The SortUtil method sorting the list")
+    String method;
+
+    @Label("Properties")
+    @Description("The properties sorted by, most significant first")
+    String properties;
+
+    @Label("Element Count")
+    int elementCount;
+
+    @Label("Strategy")
+    @Description("The way the list was sorted, if picked by SortUtil.adaptiveSort")
+    String strategy;
+
+
+    /**
+     * Ends the event and commits it, if the recording wants it.
+     *
+     * @param method       the sorting method
+     * @param elementCount the number of elements sorted
+     * @param properties   the properties sorted by
+     */
+    void commit(final String method, final int elementCount, final String... properties) {
+        end();
+
+        if (shouldCommit()) {
+            this.method = method;
+            this.elementCount = elementCount;
+            this.properties = String.join(", ", properties);
+            commit();
+        }
+    }
+}
@@ -0,0 +1,930 @@
+package com.acidblue.beans;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * The sort keys of a fixed array of beans, extracted once.
+ * <p/>
+ * Each property is read from every bean exactly once and stored in a column,
+ * so that elements can then be compared by index without calling any getters.
+ * Keys compare the same way {@link BeanPropertyComparator} compares property
+ * values, most significant property first. Properties of a primitive type are
+ * kept in primitive arrays rather than boxed.
+ *
+ * @see IndexSorter
+ */
+final class SortKeys {
+
+    /**
+     * The key columns, most significant first.
+     */
+    private final KeyColumn[] columns;
+
+
+    /**
+     * Extracts the keys of <em>elements</em>.
+     *
+     * @param elements   the beans
+     * @param properties the properties to extract, most significant first
+     * @throws IllegalArgumentException if a property cannot be read from an element
+     */
+    SortKeys(final Object[] elements, final String[] properties) {
+
+        this.columns = new KeyColumn[properties.length];
+
+        for (int i = 0; i < properties.length; i++) {
+            columns[i] = extract(elements, properties[i], 0, elements.length);
+        }
+    }
+
+
+    /**
+     * Extracts the keys of <em>elements</em> in parallel, reading ranges of <em>granularity</em> elements as
+     * separate tasks in <em>pool</em>.
+     *
+     * @param elements    the beans
+     * @param properties  the properties to extract, most significant first
+     * @param pool        the pool to run the extraction in
+     * @param granularity the number of elements read by a single task
+     * @throws IllegalArgumentException if a property cannot be read from an element
+     */
+    SortKeys(final Object[] elements, final String[] properties, final ForkJoinPool pool, final int granularity) {
+
+        this.columns = new KeyColumn[properties.length];
+
+        final int chunks = Math.max(1, (elements.length + granularity - 1) / granularity);
+
+        for (int i = 0; i < properties.length; i++) {
+            final KeyColumn[] parts = new KeyColumn[chunks];
+
+            pool.invoke(new ExtractTask(elements, properties[i], parts, granularity, 0, chunks));
+
+            columns[i] = concat(parts, elements.length);
+        }
+    }
+
+
+    /**
+     * Wraps columns that are already extracted.
+     *
+     * @param columns the key columns, most significant first
+     */
+    private SortKeys(final KeyColumn[] columns) {
+
+        this.columns = columns;
+    }
+
+
+    /**
+     * Compares the keys of the elements at index <em>i</em> and <em>j</em>.
+     *
+     * @param i the index of the element to compare
+     * @param j the index of the element to compare to
+     * @return the result of the comparison
+     */
+    int compare(final int i, final int j) {
+        for (final KeyColumn column : columns) {
+            final int result = column.compare(i, j);
+
+            if (result != 0) {
+                return result;
+            }
+        }
+
+        return 0;
+    }
+
+
+    /**
+     * Compares the keys of the element at index <em>i</em> with the property values <em>key</em>. Only as many
+     * properties as there are values are compared, so a key may be a prefix of the properties.
+     *
+     * @param i   the index of the element to compare
+     * @param key the values to compare to, most significant first
+     * @return the result of the comparison
+     * @throws IllegalArgumentException if a value cannot be compared with the keys of its property
+     */
+    int compare(final int i, final Object[] key) {
+        for (int c = 0; c < key.length; c++) {
+            final int result;
+
+            try {
+                result = columns[c].compare(i, key[c]);
+            }
+            catch (ClassCastException exception) {
+                throw new IllegalArgumentException(String.format("Key value %s cannot be compared: %s",
+                        key[c], exception.getMessage()), exception);
+            }
+
+            if (result != 0) {
+                return result;
+            }
+        }
+
+        return 0;
+    }
+
+
+    /**
+     * Replaces every <code>String</code> key by its collation key, so that strings compare by a collator without
+     * collating them on every comparison.
+     *
+     * @param collation returns the collation key of a string
+     */
+    void collate(final Function<String, ?> collation) {
+        for (final KeyColumn column : columns) {
+            if (column instanceof ObjectColumn) {
+                final Object[] values = ((ObjectColumn) column).values;
+
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] instanceof String) {
+                        values[i] = collation.apply((String) values[i]);
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Returns a column.
+     *
+     * @param column the index of the column
+     * @return the column
+     */
+    KeyColumn column(final int column) {
+        return columns[column];
+    }
+
+
+    /**
+     * Returns the values of a column if they are all strings.
+     *
+     * @param column the index of the column
+     * @return the values, or <code>null</code> if the column holds anything but non <code>null</code> strings
+     */
+    String[] strings(final int column) {
+        if (!(columns[column] instanceof ObjectColumn)) {
+            return null;
+        }
+
+        final Object[] values = ((ObjectColumn) columns[column]).values;
+        final String[] strings = new String[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            if (!(values[i] instanceof String)) {
+                return null;
+            }
+
+            strings[i] = (String) values[i];
+        }
+
+        return strings;
+    }
+
+
+    /**
+     * Returns the keys made of the columns from <em>column</em> on, sharing their values.
+     *
+     * @param column the index of the first column kept
+     * @return the keys of the less significant properties
+     */
+    SortKeys tail(final int column) {
+        return new SortKeys(Arrays.copyOfRange(columns, column, columns.length));
+    }
+
+
+    /**
+     * Returns the number of properties.
+     *
+     * @return the number of key columns
+     */
+    int width() {
+        return columns.length;
+    }
+
+
+    /**
+     * Returns these keys reordered so that index <em>i</em> holds the keys of element <em>order[i]</em>.
+     *
+     * @param order the new order of the elements
+     * @return the reordered keys
+     */
+    SortKeys permute(final int[] order) {
+        final KeyColumn[] permuted = new KeyColumn[columns.length];
+
+        for (int i = 0; i < columns.length; i++) {
+            permuted[i] = columns[i].permute(order);
+        }
+
+        return new SortKeys(permuted);
+    }
+
+
+    /**
+     * Reads <em>property</em> from the elements in <code>[from, to)</code>. Properties of a primitive kind are
+     * stored in a primitive array, unless some element's class declares the property with a different type.
+     *
+     * @param elements the beans
+     * @param property the property to read
+     * @param from     the index of the first element, inclusive
+     * @param to       the index of the last element, exclusive
+     * @return the values, in element order
+     * @throws IllegalArgumentException if the property cannot be read from an element
+     */
+    private static KeyColumn extract(final Object[] elements, final String property, final int from, final int to) {
+        if (from == to) {
+            return new ObjectColumn(new Object[0]);
+        }
+
+        final PropertyAccessor first = BeanPropertyUtil.getAccessor(property, elements[from]);
+
+        try {
+            switch (first.getKind()) {
+                case INT:
+                    return extractInts(elements, property, first, from, to);
+                case LONG:
+                    return extractLongs(elements, property, first, from, to);
+                case DOUBLE:
+                    return extractDoubles(elements, property, first, from, to);
+                default:
+                    return new ObjectColumn(extractObjects(elements, property, new Object[to - from], from, from, to));
+            }
+        }
+        catch (IllegalArgumentException exception) {
+            throw exception;
+        }
+        catch (RuntimeException exception) {
+            throw new IllegalArgumentException(String.format("Problem accessing property '%s': %s",
+                    property, exception.getMessage()), exception);
+        }
+    }
+
+
+    /**
+     * Reads an {@link PropertyAccessor.Kind#INT} property from the elements in <code>[from, to)</code>.
+     *
+     * @param elements the beans
+     * @param property the property to read
+     * @param accessor the accessor of the first element
+     * @param from     the index of the first element, inclusive
+     * @param to       the index of the last element, exclusive
+     * @return the values, in element order
+     */
+    private static KeyColumn extractInts(final Object[] elements, final String property,
+                                         PropertyAccessor accessor, final int from, final int to) {
+        final IntColumn column = new IntColumn(new int[to - from], accessor.getType());
+
+        for (int i = from; i < to; i++) {
+            accessor = accessor(elements[i], property, accessor);
+
+            if (accessor.getKind() != PropertyAccessor.Kind.INT) {
+                return new ObjectColumn(extractObjects(elements, property, column.box(i - from), from, i, to));
+            }
+
+            column.values[i - from] = accessor.getInt(elements[i]);
+        }
+
+        return column;
+    }
+
+
+    /**
+     * Reads a {@link PropertyAccessor.Kind#LONG} property from the elements in <code>[from, to)</code>.
+     *
+     * @param elements the beans
+     * @param property the property to read
+     * @param accessor the accessor of the first element
+     * @param from     the index of the first element, inclusive
+     * @param to       the index of the last element, exclusive
+     * @return the values, in element order
+     */
+    private static KeyColumn extractLongs(final Object[] elements, final String property,
+                                          PropertyAccessor accessor, final int from, final int to) {
+        final LongColumn column = new LongColumn(new long[to - from]);
+
+        for (int i = from; i < to; i++) {
+            accessor = accessor(elements[i], property, accessor);
+
+            if (accessor.getKind() != PropertyAccessor.Kind.LONG) {
+                return new ObjectColumn(extractObjects(elements, property, column.box(i - from), from, i, to));
+            }
+
+            column.values[i - from] = accessor.getLong(elements[i]);
+        }
+
+        return column;
+    }
+
+
+    /**
+     * Reads a {@link PropertyAccessor.Kind#DOUBLE} property from the elements in <code>[from, to)</code>.
+     *
+     * @param elements the beans
+     * @param property the property to read
+     * @param accessor the accessor of the first element
+     * @param from     the index of the first element, inclusive
+     * @param to       the index of the last element, exclusive
+     * @return the values, in element order
+     */
+    private static KeyColumn extractDoubles(final Object[] elements, final String property,
+                                            PropertyAccessor accessor, final int from, final int to) {
+        final DoubleColumn column = new DoubleColumn(new double[to - from], accessor.getType());
+
+        for (int i = from; i < to; i++) {
+            accessor = accessor(elements[i], property, accessor);
+
+            if (accessor.getKind() != PropertyAccessor.Kind.DOUBLE) {
+                return new ObjectColumn(extractObjects(elements, property, column.box(i - from), from, i, to));
+            }
+
+            column.values[i - from] = accessor.getDouble(elements[i]);
+        }
+
+        return column;
+    }
+
+
+    /**
+     * Reads <em>property</em> as objects from the elements in <code>[start, to)</code>.
+     *
+     * @param elements the beans
+     * @param property the property to read
+     * @param values   where to store the values; index 0 holds the value of element <em>from</em>
+     * @param from     the index of the element stored at index 0 of <em>values</em>
+     * @param start    the index of the first element to read, inclusive
+     * @param to       the index of the last element to read, exclusive
+     * @return <em>values</em>
+     */
+    private static Object[] extractObjects(final Object[] elements, final String property, final Object[] values,
+                                           final int from, final int start, final int to) {
+        PropertyAccessor accessor = null;
+
+        for (int i = start; i < to; i++) {
+            accessor = accessor(elements[i], property, accessor);
+            values[i - from] = accessor.get(elements[i]);
+        }
+
+        return values;
+    }
+
+
+    /**
+     * Returns the accessor of <em>property</em> for <em>element</em>, reusing <em>previous</em> when the element
+     * is of the same class.
+     *
+     * @param element  the bean
+     * @param property the property to read
+     * @param previous the accessor used for the previous element, or <code>null</code>
+     * @return the accessor for the element
+     */
+    private static PropertyAccessor accessor(final Object element, final String property,
+                                             final PropertyAccessor previous) {
+        if (previous != null && element != null && previous.getOwner() == element.getClass()) {
+            return previous;
+        }
+
+        return BeanPropertyUtil.getAccessor(property, element);
+    }
+
+
+    /**
+     * Joins the columns extracted from consecutive ranges of elements into one column. The result is a primitive
+     * column if all parts are primitive columns of the same type, otherwise the values are boxed.
+     *
+     * @param parts the columns of consecutive ranges
+     * @param size  the total number of values
+     * @return the joined column
+     */
+    private static KeyColumn concat(final KeyColumn[] parts, final int size) {
+        if (parts.length == 1) {
+            return parts[0];
+        }
+
+        boolean same = true;
+
+        for (final KeyColumn part : parts) {
+            same &= part.getClass() == parts[0].getClass() && part.type() == parts[0].type();
+        }
+
+        int offset = 0;
+
+        if (same && parts[0] instanceof IntColumn) {
+            final int[] values = new int[size];
+
+            for (final KeyColumn part : parts) {
+                final int[] source = ((IntColumn) part).values;
+                System.arraycopy(source, 0, values, offset, source.length);
+                offset += source.length;
+            }
+
+            return new IntColumn(values, parts[0].type());
+        } else if (same && parts[0] instanceof LongColumn) {
+            final long[] values = new long[size];
+
+            for (final KeyColumn part : parts) {
+                final long[] source = ((LongColumn) part).values;
+                System.arraycopy(source, 0, values, offset, source.length);
+                offset += source.length;
+            }
+
+            return new LongColumn(values);
+        } else if (same && parts[0] instanceof DoubleColumn) {
+            final double[] values = new double[size];
+
+            for (final KeyColumn part : parts) {
+                final double[] source = ((DoubleColumn) part).values;
+                System.arraycopy(source, 0, values, offset, source.length);
+                offset += source.length;
+            }
+
+            return new DoubleColumn(values, parts[0].type());
+        }
+
+        final Object[] values = new Object[size];
+
+        for (final KeyColumn part : parts) {
+            System.arraycopy(part.box(part.size()), 0, values, offset, part.size());
+            offset += part.size();
+        }
+
+        return new ObjectColumn(values);
+    }
+
+
+    /**
+     * Extracts a range of chunks of a column, forking a task per half.
+     */
+    private static final class ExtractTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The beans.
+         */
+        private final Object[] elements;
+
+        /**
+         * The property to read.
+         */
+        private final String property;
+
+        /**
+         * Where the column of each chunk is stored.
+         */
+        private final KeyColumn[] parts;
+
+        /**
+         * The number of elements in a chunk.
+         */
+        private final int granularity;
+
+        /**
+         * The first chunk, inclusive.
+         */
+        private final int from;
+
+        /**
+         * The last chunk, exclusive.
+         */
+        private final int to;
+
+
+        /**
+         * Creates a new task.
+         *
+         * @param elements    the beans
+         * @param property    the property to read
+         * @param parts       where the column of each chunk is stored
+         * @param granularity the number of elements in a chunk
+         * @param from        the first chunk, inclusive
+         * @param to          the last chunk, exclusive
+         */
+        ExtractTask(final Object[] elements, final String property, final KeyColumn[] parts,
+                    final int granularity, final int from, final int to) {
+            this.elements = elements;
+            this.property = property;
+            this.parts = parts;
+            this.granularity = granularity;
+            this.from = from;
+            this.to = to;
+        }
+
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                final int start = from * granularity;
+                parts[from] = extract(elements, property, start, Math.min(elements.length, start + granularity));
+                return;
+            }
+
+            final int middle = (from + to) >>> 1;
+
+            invokeAll(new ExtractTask(elements, property, parts, granularity, from, middle),
+                    new ExtractTask(elements, property, parts, granularity, middle, to));
+        }
+    }
+
+
+    /**
+     * A single column of keys.
+     */
+    abstract static class KeyColumn {
+
+        /**
+         * Compares the keys at index <em>i</em> and <em>j</em>.
+         *
+         * @param i the index of the key to compare
+         * @param j the index of the key to compare to
+         * @return the result of the comparison
+         */
+        abstract int compare(int i, int j);
+
+
+        /**
+         * Compares the key at index <em>i</em> with <em>value</em>, as {@link BeanPropertyComparator} compares
+         * property values.
+         *
+         * @param i     the index of the key to compare
+         * @param value the value to compare to
+         * @return the result of the comparison
+         */
+        int compare(final int i, final Object value) {
+            return BeanPropertyComparator.compareValues(get(i), value);
+        }
+
+
+        /**
+         * Returns the key at index <em>i</em>, boxed as the wrapper of its declared type.
+         *
+         * @param i the index of the key
+         * @return the key
+         */
+        abstract Object get(int i);
+
+
+        /**
+         * Returns a copy of the column in which index <em>i</em> holds the key at index <em>order[i]</em>.
+         *
+         * @param order the new order of the keys
+         * @return the reordered column
+         */
+        abstract KeyColumn permute(int[] order);
+
+
+        /**
+         * Returns the number of keys in the column.
+         *
+         * @return the number of keys
+         */
+        abstract int size();
+
+
+        /**
+         * Returns the declared type of the keys of a primitive column.
+         *
+         * @return the primitive type, or <code>Object.class</code>
+         */
+        Class<?> type() {
+            return Object.class;
+        }
+
+
+        /**
+         * Returns the first <em>count</em> keys boxed as the wrappers of their declared type, in an array as long as
+         * the column.
+         *
+         * @param count the number of keys to box
+         * @return the boxed keys
+         */
+        abstract Object[] box(int count);
+    }
+
+
+    /**
+     * A column of arbitrary values.
+     */
+    static final class ObjectColumn extends KeyColumn {
+
+        /**
+         * The values.
+         */
+        final Object[] values;
+
+
+        /**
+         * Creates a new column.
+         *
+         * @param values the values
+         */
+        ObjectColumn(final Object[] values) {
+            this.values = values;
+        }
+
+
+        @Override
+        int compare(final int i, final int j) {
+            return BeanPropertyComparator.compareValues(values[i], values[j]);
+        }
+
+
+        @Override
+        int compare(final int i, final Object value) {
+            return BeanPropertyComparator.compareValues(values[i], value);
+        }
+
+
+        @Override
+        KeyColumn permute(final int[] order) {
+            final Object[] permuted = new Object[order.length];
+
+            for (int i = 0; i < order.length; i++) {
+                permuted[i] = values[order[i]];
+            }
+
+            return new ObjectColumn(permuted);
+        }
+
+
+        @Override
+        int size() {
+            return values.length;
+        }
+
+
+        @Override
+        Object get(final int i) {
+            return values[i];
+        }
+
+
+        @Override
+        Object[] box(final int count) {
+            return values;
+        }
+    }
+
+
+    /**
+     * A column of <code>int</code> values.
+     */
+    static final class IntColumn extends KeyColumn {
+
+        /**
+         * The values.
+         */
+        final int[] values;
+
+        /**
+         * The declared type of the values.
+         */
+        private final Class<?> type;
+
+
+        /**
+         * Creates a new column.
+         *
+         * @param values the values
+         * @param type   the declared type of the values
+         */
+        IntColumn(final int[] values, final Class<?> type) {
+            this.values = values;
+            this.type = type;
+        }
+
+
+        @Override
+        int compare(final int i, final int j) {
+            return Integer.compare(values[i], values[j]);
+        }
+
+
+        @Override
+        int compare(final int i, final Object value) {
+            // any integral number is accepted for int, short and byte properties
+            return type != char.class && (value instanceof Integer || value instanceof Long
+                    || value instanceof Short || value instanceof Byte)
+                    ? Long.compare(values[i], ((Number) value).longValue())
+                    : super.compare(i, value);
+        }
+
+
+        @Override
+        KeyColumn permute(final int[] order) {
+            final int[] permuted = new int[order.length];
+
+            for (int i = 0; i < order.length; i++) {
+                permuted[i] = values[order[i]];
+            }
+
+            return new IntColumn(permuted, type);
+        }
+
+
+        @Override
+        int size() {
+            return values.length;
+        }
+
+
+        @Override
+        Class<?> type() {
+            return type;
+        }
+
+
+        @Override
+        Object[] box(final int count) {
+            final Object[] boxed = new Object[values.length];
+
+            for (int i = 0; i < count; i++) {
+                boxed[i] = get(i);
+            }
+
+            return boxed;
+        }
+
+
+        @Override
+        Object get(final int i) {
+            if (type == short.class) {
+                return (short) values[i];
+            } else if (type == byte.class) {
+                return (byte) values[i];
+            } else if (type == char.class) {
+                return (char) values[i];
+            }
+
+            return values[i];
+        }
+    }
+
+
+    /**
+     * A column of <code>long</code> values.
+     */
+    static final class LongColumn extends KeyColumn {
+
+        /**
+         * The values.
+         */
+        final long[] values;
+
+
+        /**
+         * Creates a new column.
+         *
+         * @param values the values
+         */
+        LongColumn(final long[] values) {
+            this.values = values;
+        }
+
+
+        @Override
+        int compare(final int i, final int j) {
+            return Long.compare(values[i], values[j]);
+        }
+
+
+        @Override
+        int compare(final int i, final Object value) {
+            // int literals are accepted for long properties
+            return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte
+                    ? Long.compare(values[i], ((Number) value).longValue())
+                    : super.compare(i, value);
+        }
+
+
+        @Override
+        KeyColumn permute(final int[] order) {
+            final long[] permuted = new long[order.length];
+
+            for (int i = 0; i < order.length; i++) {
+                permuted[i] = values[order[i]];
+            }
+
+            return new LongColumn(permuted);
+        }
+
+
+        @Override
+        int size() {
+            return values.length;
+        }
+
+
+        @Override
+        Class<?> type() {
+            return long.class;
+        }
+
+
+        @Override
+        Object[] box(final int count) {
+            final Object[] boxed = new Object[values.length];
+
+            for (int i = 0; i < count; i++) {
+                boxed[i] = values[i];
+            }
+
+            return boxed;
+        }
+
+
+        @Override
+        Object get(final int i) {
+            return values[i];
+        }
+    }
+
+
+    /**
+     * A column of <code>double</code> values.
+     */
+    static final class DoubleColumn extends KeyColumn {
+
+        /**
+         * The values.
+         */
+        final double[] values;
+
+        /**
+         * The declared type of the values.
+         */
+        private final Class<?> type;
+
+
+        /**
+         * Creates a new column.
+         *
+         * @param values the values
+         * @param type   the declared type of the values
+         */
+        DoubleColumn(final double[] values, final Class<?> type) {
+            this.values = values;
+            this.type = type;
+        }
+
+
+        @Override
+        int compare(final int i, final int j) {
+            return Double.compare(values[i], values[j]);
+        }
+
+
+        @Override
+        int compare(final int i, final Object value) {
+            // any number is accepted for double and float properties
+            return value instanceof Number
+                    ? Double.compare(values[i], ((Number) value).doubleValue())
+                    : super.compare(i, value);
+        }
+
+
+        @Override
+        KeyColumn permute(final int[] order) {
+            final double[] permuted = new double[order.length];
+
+            for (int i = 0; i < order.length; i++) {
+                permuted[i] = values[order[i]];
+            }
+
+            return new DoubleColumn(permuted, type);
+        }
+
+
+        @Override
+        int size() {
+            return values.length;
+        }
+
+
+        @Override
+        Class<?> type() {
+            return type;
+        }
+
+
+        @Override
+        Object[] box(final int count) {
+            final Object[] boxed = new Object[values.length];
+
+            for (int i = 0; i < count; i++) {
+                boxed[i] = get(i);
+            }
+
+            return boxed;
+        }
+
+
+        @Override
+        Object get(final int i) {
+            return type == float.class ? (Object) (float) values[i] : (Object) values[i];
+        }
+    }
+}
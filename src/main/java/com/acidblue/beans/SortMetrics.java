@@ -0,0 +1,236 @@
+package com.acidblue.beans;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the work done by comparators and sorts, for finding slow sort
+ * properties in a running application.
+ * <p/>
+ * Metrics are only collected when the system property
+ * <code>com.acidblue.beans.metrics</code> is <code>true</code> at start up:
+ * <pre>
+ *      java -Dcom.acidblue.beans.metrics=true ...
+ * </pre>
+ * Otherwise every probe is guarded by a constant <code>false</code>, which the
+ * JIT compiler removes, so leaving them compiled in costs nothing.
+ * <p/>
+ * Counters are cumulative over all threads and comparators, and are updated
+ * without locking. Measuring the time spent in getters and in comparisons
+ * adds two clock readings to every comparison, so expect comparisons to run
+ * noticeably slower while metrics are enabled.
+ * <p/>
+ * Independently of this switch, {@link SortUtil} emits a
+ * <code>com.acidblue.beans.Sort</code> event to JDK Flight Recorder for each
+ * sort, when a recording enabling it is running.
+ */
+public final class SortMetrics {
+
+    /**
+     * The system property enabling metrics.
+     */
+    public static final String ENABLED_PROPERTY = "com.acidblue.beans.metrics";
+
+    /**
+     * Whether metrics are collected. Read once, so that disabled probes are compiled away.
+     */
+    static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+
+    private static final LongAdder COMPARISONS = new LongAdder();
+
+    private static final LongAdder ACCESSOR_HITS = new LongAdder();
+
+    private static final LongAdder ACCESSOR_MISSES = new LongAdder();
+
+    private static final LongAdder GETTER_NANOS = new LongAdder();
+
+    private static final LongAdder COMPARE_NANOS = new LongAdder();
+
+    private static final LongAdder STRING_FALLBACKS = new LongAdder();
+
+
+    /**
+     * Utility class; cannot be instantiated.
+     */
+    private SortMetrics() {
+    }
+
+
+    /**
+     * Returns whether metrics are collected.
+     *
+     * @return the value of the <code>com.acidblue.beans.metrics</code> system property at start up
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+
+    /**
+     * Returns the number of comparisons made by {@link BeanPropertyComparator} and by comparators parsed from a
+     * sort specification.
+     *
+     * @return the number of comparisons
+     */
+    public static long getComparisons() {
+        return COMPARISONS.sum();
+    }
+
+
+    /**
+     * Returns the number of property accessors found already resolved, either in the registry of
+     * {@link BeanPropertyUtil} or in the inline cache of a comparator.
+     *
+     * @return the number of accessor cache hits
+     */
+    public static long getAccessorHits() {
+        return ACCESSOR_HITS.sum();
+    }
+
+
+    /**
+     * Returns the number of property accessors that had to be resolved.
+     *
+     * @return the number of accessor cache misses
+     */
+    public static long getAccessorMisses() {
+        return ACCESSOR_MISSES.sum();
+    }
+
+
+    /**
+     * Returns the time {@link BeanPropertyComparator} spent looking up accessors and calling getters.
+     *
+     * @return the time in nanoseconds
+     */
+    public static long getGetterNanos() {
+        return GETTER_NANOS.sum();
+    }
+
+
+    /**
+     * Returns the time {@link BeanPropertyComparator} spent comparing property values once read.
+     *
+     * @return the time in nanoseconds
+     */
+    public static long getCompareNanos() {
+        return COMPARE_NANOS.sum();
+    }
+
+
+    /**
+     * Returns the number of values compared as strings, through {@link String#valueOf(Object)}, because neither
+     * was {@link Comparable}.
+     *
+     * @return the number of string fallbacks
+     */
+    public static long getStringFallbacks() {
+        return STRING_FALLBACKS.sum();
+    }
+
+
+    /**
+     * Sets all counters to zero.
+     */
+    public static void reset() {
+        COMPARISONS.reset();
+        ACCESSOR_HITS.reset();
+        ACCESSOR_MISSES.reset();
+        GETTER_NANOS.reset();
+        COMPARE_NANOS.reset();
+        STRING_FALLBACKS.reset();
+    }
+
+
+    /**
+     * Returns all counters, for logging.
+     *
+     * @return the counters as a string
+     */
+    public static String report() {
+        return String.format("comparisons=%d, accessorHits=%d, accessorMisses=%d, getterNanos=%d, "
+                        + "compareNanos=%d, stringFallbacks=%d",
+                getComparisons(), getAccessorHits(), getAccessorMisses(), getGetterNanos(), getCompareNanos(),
+                getStringFallbacks());
+    }
+
+
+    /**
+     * Records a comparison.
+     */
+    static void comparison() {
+        if (ENABLED) {
+            COMPARISONS.increment();
+        }
+    }
+
+
+    /**
+     * Records an accessor cache hit.
+     */
+    static void accessorHit() {
+        if (ENABLED) {
+            ACCESSOR_HITS.increment();
+        }
+    }
+
+
+    /**
+     * Records an accessor cache miss.
+     */
+    static void accessorMiss() {
+        if (ENABLED) {
+            ACCESSOR_MISSES.increment();
+        }
+    }
+
+
+    /**
+     * Records a comparison of values through {@link String#valueOf(Object)}.
+     */
+    static void stringFallback() {
+        if (ENABLED) {
+            STRING_FALLBACKS.increment();
+        }
+    }
+
+
+    /**
+     * Starts timing.
+     *
+     * @return the current time, or <code>0</code> if metrics are disabled
+     */
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+
+    /**
+     * Records the time spent in getters since <em>start</em>.
+     *
+     * @param start the time getters were first called
+     * @return the current time, or <code>0</code> if metrics are disabled
+     */
+    static long gettersCalled(final long start) {
+        if (ENABLED) {
+            final long now = System.nanoTime();
+            GETTER_NANOS.add(now - start);
+            return now;
+        }
+
+        return 0L;
+    }
+
+
+    /**
+     * Records the time spent comparing values since <em>start</em>, and counts the comparison.
+     *
+     * @param start the time the values were read
+     */
+    static void compared(final long start) {
+        if (ENABLED) {
+            COMPARE_NANOS.add(System.nanoTime() - start);
+            COMPARISONS.increment();
+        }
+    }
+}
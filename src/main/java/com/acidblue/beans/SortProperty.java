@@ -0,0 +1,237 @@
+package com.acidblue.beans;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A JavaBean property to sort by, together with its direction and where
+ * <code>null</code> values are placed.
+ * <p/>
+ * Instances are immutable:
+ * <pre>
+ *      SortProperty byLastName = SortProperty.ascending("lastName");
+ *      SortProperty byAge = SortProperty.descending("age").nullsLast();
+ * </pre>
+ * <p/>
+ * <code>null</code> values are placed first unless {@link #nullsLast()} is
+ * used, whatever the direction.
+ * <p/>
+ * A list of properties can also be read from a sort specification such as
+ * <code>lastName desc nullsLast, age</code>; see {@link #parse(String)}.
+ *
+ * @see NormalizedKeyEncoder
+ * @see ComparatorFactory#parse(Class, String)
+ */
+public final class SortProperty {
+
+    /**
+     * The property name.
+     */
+    private final String name;
+
+    /**
+     * Whether the property is sorted in descending order.
+     */
+    private final boolean descending;
+
+    /**
+     * Whether <code>null</code> values are placed first.
+     */
+    private final boolean nullsFirst;
+
+
+    /**
+     * Creates a new sort property.
+     *
+     * @param name       the property name
+     * @param descending whether the property is sorted in descending order
+     * @param nullsFirst whether <code>null</code> values are placed first
+     */
+    private SortProperty(final String name, final boolean descending, final boolean nullsFirst) {
+
+        if (name == null) {
+            throw new NullPointerException("name was null");
+        }
+
+        this.name = name;
+        this.descending = descending;
+        this.nullsFirst = nullsFirst;
+    }
+
+
+    /**
+     * Returns a property sorted in ascending order.
+     *
+     * @param name the property name
+     * @return a new sort property
+     */
+    public static SortProperty ascending(final String name) {
+        return new SortProperty(name, false, true);
+    }
+
+
+    /**
+     * Returns a property sorted in descending order.
+     *
+     * @param name the property name
+     * @return a new sort property
+     */
+    public static SortProperty descending(final String name) {
+        return new SortProperty(name, true, true);
+    }
+
+
+    /**
+     * Reads a sort specification.
+     * <p/>
+     * A specification is a comma separated list of properties, most
+     * significant first. Each property name, or dotted property path, may be
+     * followed by <code>asc</code> or <code>desc</code> and then by
+     * <code>nullsFirst</code> or <code>nullsLast</code>; these keywords are
+     * not case sensitive. For example:
+     * <pre>
+     *      lastName desc nullsFirst, age asc
+     * </pre>
+     *
+     * @param spec the sort specification
+     * @return the properties, most significant first
+     * @throws IllegalArgumentException if <em>spec</em> is not a valid specification
+     */
+    public static List<SortProperty> parse(final String spec) {
+
+        if (spec == null) {
+            throw new NullPointerException("spec was null");
+        }
+
+        final List<SortProperty> properties = new ArrayList<>();
+
+        for (final String part : spec.split(",", -1)) {
+            final String[] words = part.trim().split("\\s+");
+
+            if (words[0].isEmpty()) {
+                throw invalid(spec, "empty property");
+            }
+
+            if (words.length > 3) {
+                throw invalid(spec, "unexpected '" + words[3] + "'");
+            }
+
+            SortProperty property = ascending(words[0]);
+
+            for (int i = 1; i < words.length; i++) {
+                final String word = words[i];
+
+                if (i == 1 && (word.equalsIgnoreCase("asc") || word.equalsIgnoreCase("desc"))) {
+                    property = word.equalsIgnoreCase("desc") ? descending(words[0]) : property;
+                } else if (word.equalsIgnoreCase("nullsFirst") && i == words.length - 1) {
+                    property = property.nullsFirst();
+                } else if (word.equalsIgnoreCase("nullsLast") && i == words.length - 1) {
+                    property = property.nullsLast();
+                } else {
+                    throw invalid(spec, "unexpected '" + word + "'");
+                }
+            }
+
+            properties.add(property);
+        }
+
+        return Collections.unmodifiableList(properties);
+    }
+
+
+    /**
+     * Creates the exception thrown for an invalid sort specification.
+     *
+     * @param spec   the sort specification
+     * @param reason what is wrong with it
+     * @return the exception to throw
+     */
+    private static IllegalArgumentException invalid(final String spec, final String reason) {
+        return new IllegalArgumentException(String.format("Invalid sort specification '%s': %s", spec, reason));
+    }
+
+
+    /**
+     * Returns this property with <code>null</code> values placed first.
+     *
+     * @return a sort property
+     */
+    public SortProperty nullsFirst() {
+        return nullsFirst ? this : new SortProperty(name, descending, true);
+    }
+
+
+    /**
+     * Returns this property with <code>null</code> values placed last.
+     *
+     * @return a sort property
+     */
+    public SortProperty nullsLast() {
+        return nullsFirst ? new SortProperty(name, descending, false) : this;
+    }
+
+
+    /**
+     * Returns the property name.
+     *
+     * @return the property name
+     */
+    public String getName() {
+        return name;
+    }
+
+
+    /**
+     * Returns whether the property is sorted in descending order.
+     *
+     * @return <code>true</code> if descending
+     */
+    public boolean isDescending() {
+        return descending;
+    }
+
+
+    /**
+     * Returns whether <code>null</code> values are placed first.
+     *
+     * @return <code>true</code> if <code>null</code> values come first
+     */
+    public boolean isNullsFirst() {
+        return nullsFirst;
+    }
+
+
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (!(other instanceof SortProperty)) {
+            return false;
+        }
+
+        final SortProperty that = (SortProperty) other;
+
+        return name.equals(that.name) && descending == that.descending && nullsFirst == that.nullsFirst;
+    }
+
+
+    @Override
+    public int hashCode() {
+        return (name.hashCode() * 31 + (descending ? 1 : 0)) * 31 + (nullsFirst ? 1 : 0);
+    }
+
+
+    /**
+     * Returns the property as it is written in a sort specification, for
+     * example <code>lastName desc nullsLast</code>.
+     *
+     * @return the property as a string
+     */
+    @Override
+    public String toString() {
+        return name + (descending ? " desc" : " asc") + (nullsFirst ? " nullsFirst" : " nullsLast");
+    }
+}
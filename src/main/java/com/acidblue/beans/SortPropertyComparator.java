@@ -0,0 +1,99 @@
+package com.acidblue.beans;
+
+import java.util.Comparator;
+
+/**
+ * Compares beans by a single {@link SortProperty}, honouring its direction and
+ * where it places <code>null</code> values.
+ * <p/>
+ * The accessor of the property is resolved once, against the bean class given
+ * when the comparator is created, so comparing needs no lookup. Primitive
+ * properties are compared without boxing; other values are compared as
+ * {@link BeanPropertyComparator} compares them.
+ *
+ * @see ComparatorFactory#parse(Class, String)
+ */
+final class SortPropertyComparator<T> implements Comparator<T> {
+
+    /**
+     * The property to compare by.
+     */
+    private final SortProperty property;
+
+    /**
+     * Reads the property.
+     */
+    private final PropertyAccessor accessor;
+
+
+    /**
+     * Creates a new comparator.
+     *
+     * @param type     the class of the beans to compare; every compared bean must be an instance of it
+     * @param property the property to compare by
+     * @throws IllegalArgumentException if the property cannot be found in <em>type</em>
+     */
+    SortPropertyComparator(final Class<T> type, final SortProperty property) {
+        this.property = property;
+        this.accessor = BeanPropertyUtil.getAccessor(property.getName(), type);
+    }
+
+
+    @Override
+    public int compare(final T o1, final T o2) {
+        final int result;
+
+        SortMetrics.comparison();
+
+        try {
+            switch (accessor.getKind()) {
+                case INT:
+                    result = Integer.compare(accessor.getInt(o1), accessor.getInt(o2));
+                    break;
+                case LONG:
+                    result = Long.compare(accessor.getLong(o1), accessor.getLong(o2));
+                    break;
+                case DOUBLE:
+                    result = Double.compare(accessor.getDouble(o1), accessor.getDouble(o2));
+                    break;
+                default:
+                    return compareValues(property, accessor.get(o1), accessor.get(o2));
+            }
+        }
+        catch (RuntimeException exception) {
+            throw new IllegalArgumentException(String.format("Problem accessing property '%s': %s",
+                    property.getName(), exception.getMessage()), exception);
+        }
+
+        return property.isDescending() ? -Integer.signum(result) : result;
+    }
+
+
+    /**
+     * Compares two values of <em>property</em>, honouring its direction and where it places <code>null</code>
+     * values.
+     *
+     * @param property the property the values were read from
+     * @param p1       the value to compare
+     * @param p2       the value to compare to
+     * @return the result of the comparison
+     */
+    static int compareValues(final SortProperty property, final Object p1, final Object p2) {
+        if (p1 == null || p2 == null) {
+            // nulls are placed the same way whatever the direction
+            final int nulls = p1 == null ? (p2 == null ? 0 : -1) : 1;
+
+            return property.isNullsFirst() ? nulls : -nulls;
+        }
+
+        final int result = BeanPropertyComparator.compareValues(p1, p2);
+
+        return property.isDescending() ? -Integer.signum(result) : result;
+    }
+
+
+    @Override
+    public String toString() {
+        return property.toString();
+    }
+}
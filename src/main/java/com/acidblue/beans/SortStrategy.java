@@ -0,0 +1,49 @@
+package com.acidblue.beans;
+
+import java.util.List;
+
+/**
+ * The ways {@link SortUtil#adaptiveSort(List, String, String...)} can sort a
+ * list, one of which it picks from what it measures of the list.
+ *
+ * @see SortUtil#adaptiveSort(List, String, String...)
+ */
+public enum SortStrategy {
+
+    /**
+     * The list was already in order and was left as it is.
+     */
+    ALREADY_SORTED,
+
+    /**
+     * The list was sorted with a comparator from {@link ComparatorFactory},
+     * calling the getters on every comparison. Chosen for short lists with
+     * cheap getters, and for lists made of a few long runs, which the merge
+     * sort of {@link List#sort} merges in close to linear time.
+     */
+    COMPARATOR,
+
+    /**
+     * The list was sorted as by {@link SortUtil#keySort(List, String, String...)}.
+     */
+    KEY_SORT,
+
+    /**
+     * The list was sorted as by {@link SortUtil#radixSort(List, String, String...)}.
+     * Chosen when the first property is a <code>String</code>.
+     */
+    RADIX_SORT,
+
+    /**
+     * The list was sorted as by {@link SortUtil#primitiveSort(List, String, String...)}.
+     * Chosen when the first property is an <code>int</code>, <code>long</code>
+     * or <code>double</code>.
+     */
+    PRIMITIVE_SORT,
+
+    /**
+     * The list was sorted as by {@link SortUtil#parallelSort(List, String, String...)}.
+     * Chosen for long lists when the common pool has more than one thread.
+     */
+    PARALLEL_SORT
+}
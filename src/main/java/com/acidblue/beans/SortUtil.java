@@ -1,6 +1,25 @@
 package com.acidblue.beans;
 
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Path;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A simple utility class for sorting collections based on its contained beans'
@@ -43,12 +62,21 @@ import java.util.List;
  *      SortUtil.sort(people, "lastname", "firstName");
  * </pre>
  * <p/>
+ * Each sort is recorded as a <code>com.acidblue.beans.Sort</code> event when
+ * JDK Flight Recorder is running; see {@link SortMetrics}.
  *
  * @author briggs <a href="mailto:acidbriggs@gmail.com">acidbriggs@gmail.com</a>
  * @version 1.0
  */
 public final class SortUtil {
 
+    /**
+     * Lists shorter than this are sorted sequentially by
+     * {@link #parallelSort(List, String, String...)}.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 13;
+
+
     /**
      * This is a utility class
      */
@@ -67,7 +95,12 @@ public final class SortUtil {
 
     public static <E> void sort(final List<E> target, String propertyName) {
 
+        final SortEvent event = new SortEvent();
+        event.begin();
+
         target.sort(ComparatorFactory.create(propertyName));
+
+        event.commit("sort", target.size(), propertyName);
     }
 
 
@@ -81,6 +114,812 @@ public final class SortUtil {
      */
     public static <E> void sort(final List<E> target, final String majorProperty, final String minorProperty) {
 
+        final SortEvent event = new SortEvent();
+        event.begin();
+
         target.sort(ComparatorFactory.create(majorProperty, minorProperty));
+
+        event.commit("sort", target.size(), majorProperty, minorProperty);
+    }
+
+
+    /**
+     * Sorts a List based on one or more properties common to the elements
+     * within the Collection, reading them with the access granted by
+     * <em>lookup</em>.
+     * <p/>
+     * Properties are read from record components or fields directly, whatever
+     * their visibility, so package-private beans without public getters can be
+     * sorted by passing <code>MethodHandles.lookup()</code> from a class in
+     * their package.
+     *
+     * @param target The list to be sorted
+     * @param lookup the access granted by the caller
+     * @param first  the first property to sort by
+     * @param rest   any other properties to sort by (order is preserved)
+     * @throws IllegalArgumentException if a property cannot be found or accessed
+     * @see ComparatorFactory#create(MethodHandles.Lookup, String, String...)
+     */
+    public static <E> void sort(final List<E> target, final MethodHandles.Lookup lookup, final String first,
+                                final String... rest) {
+
+        final SortEvent event = new SortEvent();
+        event.begin();
+
+        final Comparator<E> comparator = ComparatorFactory.create(lookup, first, rest);
+
+        target.sort(comparator);
+
+        event.commit("sort", target.size(), properties(first, rest));
+    }
+
+
+    /**
+     * Sorts a List based on one or more JavaBean properties common to the
+     * elements within the Collection, reading each property only once per
+     * element.
+     * <p/>
+     * The properties of every element are extracted into key arrays up front,
+     * the keys are sorted and the elements are then written back into
+     * <em>target</em> in their new order. This avoids calling the getters on
+     * every comparison, which pays off when they are expensive to compute.
+     * <p/>
+     * The sort is stable and orders elements exactly as a comparator from
+     * {@link ComparatorFactory} for the same properties would.
+     *
+     * @param target The list to be sorted
+     * @param first  the first property to sort by
+     * @param rest   any other properties to sort by (order is preserved)
+     * @throws IllegalArgumentException if a property cannot be read from an element
+     */
+    public static <E> void keySort(final List<E> target, final String first, final String... rest) {
+
+        final SortEvent event = new SortEvent();
+        event.begin();
+
+        final String[] properties = properties(first, rest);
+        final Object[] elements = target.toArray();
+        final int[] order = IndexSorter.sort(new SortKeys(elements, properties), elements.length);
+
+        reorder(target, elements, order);
+
+        event.commit("keySort", elements.length, properties);
+    }
+
+
+    /**
+     * Sorts a List based on one or more <code>String</code> JavaBean
+     * properties common to the elements within the Collection, with a radix
+     * sort rather than by comparing.
+     * <p/>
+     * As with {@link #keySort(List, String, String...)} each property is read
+     * once per element. The elements are then distributed into buckets one
+     * character at a time, from the first character of the first property on,
+     * so a character shared by many strings, as in the long common prefixes of
+     * product codes, paths or identifiers, is read about once per element
+     * instead of once per comparison. Small buckets are insertion sorted.
+     * <p/>
+     * The sort is stable and orders elements exactly as
+     * {@link #keySort(List, String, String...)} does. Properties that are not
+     * all <code>String</code>s, such as numbers or <code>null</code> values,
+     * are sorted by comparison from the first of them on.
+     *
+     * @param target The list to be sorted
+     * @param first  the first property to sort by
+     * @param rest   any other properties to sort by (order is preserved)
+     * @throws IllegalArgumentException if a property cannot be read from an element
+     */
+    public static <E> void radixSort(final List<E> target, final String first, final String... rest) {
+
+        final SortEvent event = new SortEvent();
+        event.begin();
+
+        final String[] properties = properties(first, rest);
+        final Object[] elements = target.toArray();
+        final int[] order = StringRadixSorter.sort(new SortKeys(elements, properties), elements.length);
+
+        reorder(target, elements, order);
+
+        event.commit("radixSort", elements.length, properties);
+    }
+
+
+    /**
+     * Sorts a List based on one or more <code>int</code>, <code>long</code>
+     * or <code>double</code> JavaBean properties common to the elements within
+     * the Collection, with a radix sort rather than by comparing.
+     * <p/>
+     * As with {@link #keySort(List, String, String...)} each property is read
+     * once per element, into primitive arrays. If the values of the first
+     * property are already in order, the list is left as it is. Otherwise the
+     * values are sorted a byte at a time, in a few linear passes, skipping the
+     * bytes all values share; event timelines sorted by a <code>long</code>
+     * timestamp typically need four or five passes.
+     * <p/>
+     * When the library is built with the <code>vector</code> profile and the
+     * JVM runs with <code>--add-modules jdk.incubator.vector</code> the
+     * values are converted and checked for order with SIMD instructions.
+     * Otherwise, or with the system property
+     * <code>com.acidblue.beans.vector</code> set to <code>false</code>, the
+     * same work is done one value at a time, with the same result.
+     * <p/>
+     * The sort is stable and orders elements exactly as
+     * {@link #keySort(List, String, String...)} does. Lists of fewer than 1024
+     * elements, and properties that are not primitive in every element, are
+     * sorted by comparison.
+     *
+     * @param target The list to be sorted
+     * @param first  the first property to sort by
+     * @param rest   any other properties to sort by (order is preserved)
+     * @throws IllegalArgumentException if a property cannot be read from an element
+     */
+    public static <E> void primitiveSort(final List<E> target, final String first, final String... rest) {
+
+        final SortEvent event = new SortEvent();
+        event.begin();
+
+        final String[] properties = properties(first, rest);
+        final Object[] elements = target.toArray();
+        final int[] order = PrimitiveRadixSorter.sort(new SortKeys(elements, properties), elements.length);
+
+        reorder(target, elements, order);
+
+        event.commit("primitiveSort", elements.length, properties);
+    }
+
+
+    /**
+     * Sorts a List based on one or more JavaBean properties common to the
+     * elements within the Collection, picking the way to sort it from what it
+     * measures of the list.
+     * <p/>
+     * Before sorting, the size of the list, the type of the first property,
+     * the cost of a sample of getter calls and how many sampled neighbours are
+     * out of order are measured. A list already in order is left as it is. A
+     * short list, or one made of a few long runs, with cheap getters is sorted
+     * with a comparator; otherwise the properties are read once per element
+     * as by {@link #primitiveSort(List, String, String...)},
+     * {@link #parallelSort(List, String, String...)},
+     * {@link #radixSort(List, String, String...)} or
+     * {@link #keySort(List, String, String...)}, in that order of preference.
+     * Lists without {@link RandomAccess} are copied before being measured.
+     * <p/>
+     * Whichever way is picked, the sort is stable and orders elements exactly
+     * as a comparator from {@link ComparatorFactory} for the same properties.
+     * The way picked is returned, and recorded in the
+     * <code>com.acidblue.beans.Sort</code> event.
+     *
+     * @param target The list to be sorted
+     * @param first  the first property to sort by
+     * @param rest   any other properties to sort by (order is preserved)
+     * @return the way the list was sorted
+     * @throws IllegalArgumentException if a property cannot be read from an element
+     * @see SortStrategy
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> SortStrategy adaptiveSort(final List<E> target, final String first, final String... rest) {
+
+        final SortEvent event = new SortEvent();
+        event.begin();
+
+        final String[] properties = properties(first, rest);
+        final Object[] copy = target instanceof RandomAccess ? null : target.toArray();
+        final List<E> elements = copy == null ? target : (List<E>) Arrays.asList(copy);
+        final Comparator<E> comparator = comparator(first, rest);
+        final SortStrategy strategy = StrategySelector.select(elements, comparator, properties,
+                ForkJoinPool.getCommonPoolParallelism());
+
+        switch (strategy) {
+            case ALREADY_SORTED:
+                break;
+            case COMPARATOR:
+                target.sort(comparator);
+                break;
+            default:
+                final Object[] array = copy == null ? target.toArray() : copy;
+                reorder(target, array, order(strategy, array, properties));
+        }
+
+        event.strategy = strategy.name();
+        event.commit("adaptiveSort", target.size(), properties);
+
+        return strategy;
+    }
+
+
+    /**
+     * Returns the elements of <em>source</em> as a stream sorted on one or
+     * more JavaBean properties, sorting lazily as the stream is consumed.
+     * <p/>
+     * When the stream's terminal operation starts, the properties of every
+     * element are read once. Elements are then sorted incrementally: each one
+     * is only put in its final place when the stream asks for it. Taking the
+     * first <em>k</em> of <em>n</em> elements, as when showing the first page
+     * of a result, costs O(n + k log k) comparisons on average rather than
+     * the O(n log n) of a full sort; a stream consumed to the end costs about
+     * as much as a full sort.
+     * <p/>
+     * The order is stable, and the same as that of
+     * {@link #keySort(List, String, String...)} for the same properties.
+     *
+     * @param source the elements to sort; read when the terminal operation of the stream starts
+     * @param first  the first property to sort by
+     * @param rest   any other properties to sort by (order is preserved)
+     * @return a sequential, ordered stream of the elements in sorted order
+     * @throws IllegalArgumentException when the stream is consumed, if a property cannot be read from an element
+     */
+    public static <E> Stream<E> sortedStream(final Collection<? extends E> source, final String first,
+                                             final String... rest) {
+
+        if (source == null) {
+            throw new NullPointerException("source was null");
+        }
+
+        final String[] properties = properties(first, rest);
+
+        return StreamSupport.stream(() -> {
+            final Object[] elements = source.toArray();
+
+            return Spliterators.spliterator(new IncrementalSorter<E>(elements, new SortKeys(elements, properties)),
+                    elements.length, Spliterator.ORDERED);
+        }, Spliterator.ORDERED | Spliterator.SIZED, false);
+    }
+
+
+    /**
+     * Sorts a List based on one or more JavaBean properties common to the
+     * elements within the Collection, comparing <code>String</code> properties
+     * by a {@link Collator}.
+     * <p/>
+     * Like {@link #keySort(List, String, String...)} the properties of every
+     * element are read once. The {@link CollationKey} of each distinct string
+     * is then computed once, and the sort compares collation keys rather than
+     * collating strings on every comparison. Properties that are not strings
+     * are compared as usual.
+     *
+     * @param target   The list to be sorted
+     * @param collator the collator to compare strings by
+     * @param first    the first property to sort by
+     * @param rest     any other properties to sort by (order is preserved)
+     * @throws IllegalArgumentException if a property cannot be read from an element
+     */
+    public static <E> void collatedSort(final List<E> target, final Collator collator, final String first,
+                                        final String... rest) {
+
+        if (collator == null) {
+            throw new NullPointerException("collator was null");
+        }
+
+        final Map<String, CollationKey> keys = new HashMap<>();
+
+        collatedSort(target, string -> keys.computeIfAbsent(string, collator::getCollationKey), first, rest);
+    }
+
+
+    /**
+     * Sorts a List based on one or more JavaBean properties common to the
+     * elements within the Collection, comparing <code>String</code> properties
+     * by the collation keys of <em>cache</em>.
+     * <p/>
+     * Keys computed by one sort are kept in the cache for the next, so
+     * repeatedly sorting the same or similar lists only collates strings not
+     * seen before.
+     *
+     * @param target The list to be sorted
+     * @param cache  the collation keys to compare strings by
+     * @param first  the first property to sort by
+     * @param rest   any other properties to sort by (order is preserved)
+     * @throws IllegalArgumentException if a property cannot be read from an element
+     * @see #collatedSort(List, Collator, String, String...)
+     */
+    public static <E> void collatedSort(final List<E> target, final CollationKeyCache cache, final String first,
+                                        final String... rest) {
+
+        if (cache == null) {
+            throw new NullPointerException("cache was null");
+        }
+
+        collatedSort(target, cache::getCollationKey, first, rest);
+    }
+
+
+    /**
+     * Sorts a List by key, comparing <code>String</code> keys by their collation keys.
+     *
+     * @param target    The list to be sorted
+     * @param collation returns the collation key of a string
+     * @param first     the first property to sort by
+     * @param rest      any other properties to sort by (order is preserved)
+     */
+    private static <E> void collatedSort(final List<E> target, final Function<String, CollationKey> collation,
+                                         final String first, final String... rest) {
+
+        final SortEvent event = new SortEvent();
+        event.begin();
+
+        final String[] properties = properties(first, rest);
+        final Object[] elements = target.toArray();
+        final SortKeys keys = new SortKeys(elements, properties);
+
+        keys.collate(collation);
+        reorder(target, elements, IndexSorter.sort(keys, elements.length));
+
+        event.commit("collatedSort", elements.length, properties);
+    }
+
+
+    /**
+     * Sorts a List based on one or more JavaBean properties common to the
+     * elements within the Collection, using all processors of the common
+     * {@link ForkJoinPool}.
+     * <p/>
+     * Lists shorter than {@link #DEFAULT_PARALLEL_THRESHOLD} are sorted
+     * sequentially.
+     *
+     * @param target The list to be sorted
+     * @param first  the first property to sort by
+     * @param rest   any other properties to sort by (order is preserved)
+     * @throws IllegalArgumentException if a property cannot be read from an element
+     * @see #parallelSort(List, int, ForkJoinPool, String, String...)
+     */
+    public static <E> void parallelSort(final List<E> target, final String first, final String... rest) {
+
+        parallelSort(target, DEFAULT_PARALLEL_THRESHOLD, ForkJoinPool.commonPool(), first, rest);
+    }
+
+
+    /**
+     * Sorts a List based on one or more JavaBean properties common to the
+     * elements within the Collection, in parallel.
+     * <p/>
+     * Like {@link #keySort(List, String, String...)} the properties of every
+     * element are read once, but both reading them and sorting are split into
+     * tasks run in <em>pool</em>. Lists shorter than <em>threshold</em> are
+     * sorted sequentially in the calling thread.
+     * <p/>
+     * The sort is stable: elements with equal properties keep their relative
+     * order, regardless of how the work is split. The result is therefore
+     * always the same as that of {@link #keySort(List, String, String...)}
+     * and of a comparator from {@link ComparatorFactory} for the same
+     * properties. The getters may be called from several threads at once.
+     *
+     * @param target    The list to be sorted
+     * @param threshold the size below which the list is sorted sequentially
+     * @param pool      the pool to run the tasks in
+     * @param first     the first property to sort by
+     * @param rest      any other properties to sort by (order is preserved)
+     * @throws IllegalArgumentException if a property cannot be read from an element
+     */
+    public static <E> void parallelSort(final List<E> target, final int threshold, final ForkJoinPool pool,
+                                        final String first, final String... rest) {
+
+        if (pool == null) {
+            throw new NullPointerException("pool was null");
+        }
+
+        final SortEvent event = new SortEvent();
+        event.begin();
+
+        final String[] properties = properties(first, rest);
+        final Object[] elements = target.toArray();
+
+        if (elements.length < Math.max(threshold, 2) || pool.getParallelism() == 1) {
+            reorder(target, elements, IndexSorter.sort(new SortKeys(elements, properties), elements.length));
+            event.commit("keySort", elements.length, properties);
+            return;
+        }
+
+        reorder(target, elements, parallelOrder(elements, properties, pool));
+
+        event.commit("parallelSort", elements.length, properties);
+    }
+
+
+    /**
+     * Returns the first <em>k</em> elements of <em>source</em> as they would
+     * appear after sorting it on the given JavaBean properties, without
+     * sorting the whole source.
+     * <p/>
+     * Only the best <em>k</em> elements seen so far are kept, in a bounded
+     * heap, so this runs in O(n log k) time and O(k) memory. Ties are resolved
+     * as by a stable sort: the result equals the first <em>k</em> elements of
+     * the list after {@link #keySort(List, String, String...)}.
+     *
+     * @param source the elements to select from
+     * @param k      the number of elements to return
+     * @param first  the first property to sort by
+     * @param rest   any other properties to sort by (order is preserved)
+     * @return a new list of at most <em>k</em> elements, in sorted order
+     * @throws IllegalArgumentException if <em>k</em> is negative or a property cannot be read from an element
+     */
+    public static <E> List<E> topK(final Iterable<E> source, final int k, final String first,
+                                   final String... rest) {
+
+        return topK(source.iterator(), k, comparator(first, rest));
+    }
+
+
+    /**
+     * Returns the first <em>k</em> elements of <em>source</em> as they would
+     * appear after sorting it on the given JavaBean properties. The iterator
+     * is consumed, and never more than <em>k</em> elements are held in
+     * memory.
+     *
+     * @param source the elements to select from
+     * @param k      the number of elements to return
+     * @param first  the first property to sort by
+     * @param rest   any other properties to sort by (order is preserved)
+     * @return a new list of at most <em>k</em> elements, in sorted order
+     * @throws IllegalArgumentException if <em>k</em> is negative or a property cannot be read from an element
+     * @see #topK(Iterable, int, String, String...)
+     */
+    public static <E> List<E> topK(final Iterator<E> source, final int k, final String first,
+                                   final String... rest) {
+
+        return topK(source, k, comparator(first, rest));
+    }
+
+
+    /**
+     * Returns the first <em>k</em> elements of <em>source</em> as they would
+     * appear after a stable sort with <em>comparator</em>. The iterator is
+     * consumed, and never more than <em>k</em> elements are held in memory.
+     *
+     * @param source     the elements to select from
+     * @param k          the number of elements to return
+     * @param comparator the comparator defining the order
+     * @return a new list of at most <em>k</em> elements, in sorted order
+     * @throws IllegalArgumentException if <em>k</em> is negative
+     * @see #topK(Iterable, int, String, String...)
+     */
+    public static <E> List<E> topK(final Iterator<? extends E> source, final int k,
+                                   final Comparator<? super E> comparator) {
+
+        return select(source, new BoundedHeap<E>(k, comparator, false));
+    }
+
+
+    /**
+     * Returns the last <em>k</em> elements of <em>source</em> as they would
+     * appear after sorting it on the given JavaBean properties, without
+     * sorting the whole source. The elements are returned in sorted
+     * (ascending) order.
+     * <p/>
+     * This runs in O(n log k) time and O(k) memory, and ties are resolved as
+     * by a stable sort: the result equals the last <em>k</em> elements of the
+     * list after {@link #keySort(List, String, String...)}.
+     *
+     * @param source the elements to select from
+     * @param k      the number of elements to return
+     * @param first  the first property to sort by
+     * @param rest   any other properties to sort by (order is preserved)
+     * @return a new list of at most <em>k</em> elements, in sorted order
+     * @throws IllegalArgumentException if <em>k</em> is negative or a property cannot be read from an element
+     */
+    public static <E> List<E> bottomK(final Iterable<E> source, final int k, final String first,
+                                      final String... rest) {
+
+        return bottomK(source.iterator(), k, comparator(first, rest));
+    }
+
+
+    /**
+     * Returns the last <em>k</em> elements of <em>source</em> as they would
+     * appear after sorting it on the given JavaBean properties. The iterator
+     * is consumed, and never more than <em>k</em> elements are held in
+     * memory.
+     *
+     * @param source the elements to select from
+     * @param k      the number of elements to return
+     * @param first  the first property to sort by
+     * @param rest   any other properties to sort by (order is preserved)
+     * @return a new list of at most <em>k</em> elements, in sorted order
+     * @throws IllegalArgumentException if <em>k</em> is negative or a property cannot be read from an element
+     * @see #bottomK(Iterable, int, String, String...)
+     */
+    public static <E> List<E> bottomK(final Iterator<E> source, final int k, final String first,
+                                      final String... rest) {
+
+        return bottomK(source, k, comparator(first, rest));
+    }
+
+
+    /**
+     * Returns the last <em>k</em> elements of <em>source</em> as they would
+     * appear after a stable sort with <em>comparator</em>, in sorted order.
+     * The iterator is consumed, and never more than <em>k</em> elements are
+     * held in memory.
+     *
+     * @param source     the elements to select from
+     * @param k          the number of elements to return
+     * @param comparator the comparator defining the order
+     * @return a new list of at most <em>k</em> elements, in sorted order
+     * @throws IllegalArgumentException if <em>k</em> is negative
+     * @see #bottomK(Iterable, int, String, String...)
+     */
+    public static <E> List<E> bottomK(final Iterator<? extends E> source, final int k,
+                                      final Comparator<? super E> comparator) {
+
+        return select(source, new BoundedHeap<E>(k, comparator, true));
+    }
+
+
+    /**
+     * Sorts more beans than fit in memory on one or more JavaBean properties.
+     * <p/>
+     * The source is read in runs of at most <em>runSize</em> beans. Each run
+     * is sorted in memory with {@link #keySort(List, String, String...)} and
+     * written to a temporary file with <em>codec</em>; the returned iterator
+     * then merges the runs lazily. At no point are more than
+     * <em>runSize</em> beans (plus one per run while merging) held in memory.
+     * If the whole source fits in a single run, nothing is written to disk.
+     * <p/>
+     * No more than 64 runs are merged at once; more runs are first merged
+     * into longer ones, in as many passes as needed, so that the number of
+     * open files stays bounded.
+     * <p/>
+     * The sort is stable. Temporary files are deleted once the returned
+     * iterator has read them. If runs were written to disk the iterator is
+     * also {@link java.io.Closeable}: closing it deletes the files it has not
+     * read yet, which is otherwise done once it is garbage collected.
+     *
+     * @param source  the beans to sort
+     * @param codec   writes and reads the beans to and from temporary files
+     * @param runSize the maximum number of beans to sort in memory at once
+     * @param first   the first property to sort by
+     * @param rest    any other properties to sort by (order is preserved)
+     * @return the beans in sorted order
+     * @throws IllegalArgumentException if <em>runSize</em> is not positive or a property cannot be read
+     * @throws java.io.UncheckedIOException if a temporary file cannot be written or read
+     */
+    public static <E> Iterator<E> externalSort(final Iterator<? extends E> source, final RecordCodec<E> codec,
+                                               final int runSize, final String first, final String... rest) {
+
+        final Comparator<E> comparator = comparator(first, rest);
+
+        return new ExternalSorter<E>(codec, runSize, null, comparator, run -> keySort(run, first, rest))
+                .sort(source);
+    }
+
+
+    /**
+     * Sorts more beans than fit in memory with a comparator, writing
+     * temporary files into <em>directory</em>.
+     *
+     * @param source     the beans to sort
+     * @param codec      writes and reads the beans to and from temporary files
+     * @param runSize    the maximum number of beans to sort in memory at once
+     * @param directory  the directory of the temporary files, or <code>null</code> for the default one
+     * @param comparator the comparator defining the order
+     * @return the beans in sorted order
+     * @throws IllegalArgumentException if <em>runSize</em> is not positive
+     * @throws java.io.UncheckedIOException if a temporary file cannot be written or read
+     * @see #externalSort(Iterator, RecordCodec, int, String, String...)
+     */
+    public static <E> Iterator<E> externalSort(final Iterator<? extends E> source, final RecordCodec<E> codec,
+                                               final int runSize, final Path directory,
+                                               final Comparator<? super E> comparator) {
+
+        if (comparator == null) {
+            throw new NullPointerException("comparator was null");
+        }
+
+        return new ExternalSorter<E>(codec, runSize, directory, comparator, run -> run.sort(comparator))
+                .sort(source);
+    }
+
+
+    /**
+     * Merges sources that are each already sorted on one or more JavaBean
+     * properties into one sorted iterator.
+     * <p/>
+     * The merge is lazy: each call to <code>next()</code> reads one element
+     * from one source, so the sources are never materialized. Choosing the
+     * next element takes O(log k) comparisons for <em>k</em> sources, using a
+     * tournament tree of losers. Equal elements are returned in the order of
+     * their sources.
+     *
+     * @param sources the sorted sources
+     * @param first   the first property the sources are sorted by
+     * @param rest    any other properties the sources are sorted by (order is preserved)
+     * @return the merged elements, in sorted order
+     * @throws IllegalArgumentException if a property cannot be read from an element
+     */
+    public static <E> Iterator<E> merge(final List<? extends Iterator<? extends E>> sources, final String first,
+                                        final String... rest) {
+
+        return merge(sources, SortUtil.<E>comparator(first, rest));
+    }
+
+
+    /**
+     * Merges sources that are each already sorted by a comparator into one
+     * sorted iterator.
+     *
+     * @param sources    the sorted sources
+     * @param comparator the comparator the sources are sorted by
+     * @return the merged elements, in sorted order
+     * @see #merge(List, String, String...)
+     */
+    public static <E> Iterator<E> merge(final List<? extends Iterator<? extends E>> sources,
+                                        final Comparator<? super E> comparator) {
+
+        if (sources == null) {
+            throw new NullPointerException("sources was null");
+        }
+
+        if (comparator == null) {
+            throw new NullPointerException("comparator was null");
+        }
+
+        return new MergingIterator<E>(sources, comparator);
+    }
+
+
+    /**
+     * Merges collections, such as lists, that are each already sorted on one
+     * or more JavaBean properties into one sorted, sequential stream.
+     * <p/>
+     * Nothing is read from the sources until the stream is consumed, and
+     * elements are then merged one at a time as by
+     * {@link #merge(List, String, String...)}.
+     *
+     * @param sources the sorted sources
+     * @param first   the first property the sources are sorted by
+     * @param rest    any other properties the sources are sorted by (order is preserved)
+     * @return the merged elements, in sorted order
+     */
+    public static <E> Stream<E> mergeStream(final Collection<? extends Iterable<? extends E>> sources,
+                                            final String first, final String... rest) {
+
+        return mergeStream(sources, SortUtil.<E>comparator(first, rest));
+    }
+
+
+    /**
+     * Merges collections, such as lists, that are each already sorted by a
+     * comparator into one sorted, sequential stream.
+     *
+     * @param sources    the sorted sources
+     * @param comparator the comparator the sources are sorted by
+     * @return the merged elements, in sorted order
+     * @see #mergeStream(Collection, String, String...)
+     */
+    public static <E> Stream<E> mergeStream(final Collection<? extends Iterable<? extends E>> sources,
+                                            final Comparator<? super E> comparator) {
+
+        if (sources == null) {
+            throw new NullPointerException("sources was null");
+        }
+
+        if (comparator == null) {
+            throw new NullPointerException("comparator was null");
+        }
+
+        return StreamSupport.stream(() -> {
+            final List<Iterator<? extends E>> iterators = new ArrayList<>(sources.size());
+
+            for (final Iterable<? extends E> source : sources) {
+                iterators.add(source.iterator());
+            }
+
+            return Spliterators.spliteratorUnknownSize(new MergingIterator<E>(iterators, comparator),
+                    Spliterator.ORDERED);
+        }, Spliterator.ORDERED, false);
+    }
+
+
+    /**
+     * Offers every element of <em>source</em> to <em>heap</em>.
+     *
+     * @param source the elements to select from
+     * @param heap   the heap keeping the selected elements
+     * @return the selected elements, in sorted order
+     */
+    private static <E> List<E> select(final Iterator<? extends E> source, final BoundedHeap<E> heap) {
+
+        while (source.hasNext()) {
+            heap.offer(source.next());
+        }
+
+        return heap.drain();
+    }
+
+
+    /**
+     * Returns the comparator for the given properties, as created by
+     * {@link ComparatorFactory}.
+     *
+     * @param first the first property
+     * @param rest  any other properties
+     * @return a comparator instance
+     */
+    static <E> Comparator<E> comparator(final String first, final String... rest) {
+
+        if (rest.length == 0) {
+            return ComparatorFactory.create(first);
+        }
+
+        return ComparatorFactory.create(first, rest[0], Arrays.copyOfRange(rest, 1, rest.length));
+    }
+
+
+    /**
+     * Returns the sorted order of <em>elements</em> by the given way of reading the keys once.
+     *
+     * @param strategy   the way to sort, one reading the keys
+     * @param elements   the elements to sort
+     * @param properties the properties to sort by
+     * @return the indexes of the elements, in sorted order
+     */
+    private static int[] order(final SortStrategy strategy, final Object[] elements, final String[] properties) {
+
+        switch (strategy) {
+            case RADIX_SORT:
+                return StringRadixSorter.sort(new SortKeys(elements, properties), elements.length);
+            case PRIMITIVE_SORT:
+                return PrimitiveRadixSorter.sort(new SortKeys(elements, properties), elements.length);
+            case PARALLEL_SORT:
+                return parallelOrder(elements, properties, ForkJoinPool.commonPool());
+            default:
+                return IndexSorter.sort(new SortKeys(elements, properties), elements.length);
+        }
+    }
+
+
+    /**
+     * Returns the sorted order of <em>elements</em>, reading and sorting the keys in parallel in <em>pool</em>.
+     *
+     * @param elements   the elements to sort
+     * @param properties the properties to sort by
+     * @param pool       the pool to run the tasks in
+     * @return the indexes of the elements, in sorted order
+     */
+    private static int[] parallelOrder(final Object[] elements, final String[] properties, final ForkJoinPool pool) {
+
+        final int granularity = Math.max(DEFAULT_PARALLEL_THRESHOLD, elements.length / (pool.getParallelism() << 2));
+        final SortKeys keys = new SortKeys(elements, properties, pool, granularity);
+
+        return IndexSorter.sort(keys, elements.length, pool, granularity);
+    }
+
+
+    /**
+     * Joins the properties to sort by into one array.
+     *
+     * @param first the first property
+     * @param rest  any other properties
+     * @return all properties, in order
+     */
+    private static String[] properties(final String first, final String... rest) {
+
+        if (first == null) {
+            throw new NullPointerException("first was null");
+        }
+
+        final String[] properties = new String[rest.length + 1];
+        properties[0] = first;
+        System.arraycopy(rest, 0, properties, 1, rest.length);
+
+        return properties;
+    }
+
+
+    /**
+     * Writes <em>elements</em> back into <em>target</em> in the given order.
+     *
+     * @param target   the list to write to
+     * @param elements the elements of the list
+     * @param order    the indexes of the elements in their new order
+     */
+    @SuppressWarnings("unchecked")
+    private static <E> void reorder(final List<E> target, final Object[] elements, final int[] order) {
+
+        final ListIterator<E> iterator = target.listIterator();
+
+        for (final int index : order) {
+            iterator.next();
+            iterator.set((E) elements[index]);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+package com.acidblue.beans;
+
+/**
+ * Converts primitive key columns into <code>long</code> keys whose unsigned
+ * order is the order of the values, as compared by {@link SortKeys}.
+ * <p/>
+ * An <code>int</code> is offset by 2<sup>31</sup>, so its high 32 bits are
+ * always zero; a <code>long</code> by 2<sup>63</sup>. A <code>double</code>
+ * keeps its bits, as returned by {@link Double#doubleToLongBits(double)},
+ * with all bits flipped for negative values and only the sign bit flipped for
+ * the others; like {@link Double#compare(double, double)} this puts
+ * <code>-0.0</code> before <code>0.0</code> and NaN after everything else.
+ * <p/>
+ * This class does the work one value at a time. When the library is built
+ * with the <code>vector</code> profile and the
+ * <code>jdk.incubator.vector</code> module is present (for example with
+ * <code>--add-modules jdk.incubator.vector</code>), {@link #create()} returns
+ * a <code>VectorSortableBits</code> doing it with SIMD instructions instead,
+ * unless the system property <code>com.acidblue.beans.vector</code> is
+ * <code>false</code>. Both give the same results.
+ *
+ * @see PrimitiveRadixSorter
+ */
+class SortableBits {
+
+    /**
+     * Returns the fastest implementation available.
+     *
+     * @return an instance using the Vector API if built and available, otherwise a scalar instance
+     */
+    static SortableBits create() {
+        if (Boolean.parseBoolean(System.getProperty("com.acidblue.beans.vector", "true"))
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // loaded by name, since the default build leaves it out
+                return Class.forName("com.acidblue.beans.VectorSortableBits").asSubclass(SortableBits.class)
+                        .getDeclaredConstructor().newInstance();
+            }
+            catch (ReflectiveOperationException | LinkageError error) {
+                // not built, or the module cannot be used after all
+            }
+        }
+
+        return new SortableBits();
+    }
+
+
+    /**
+     * Returns the keys of a column.
+     *
+     * @param column the column
+     * @return the keys, or <code>null</code> if the column does not hold primitive values
+     */
+    final long[] of(final SortKeys.KeyColumn column) {
+        if (column instanceof SortKeys.IntColumn) {
+            return ofInts(((SortKeys.IntColumn) column).values);
+        } else if (column instanceof SortKeys.LongColumn) {
+            return ofLongs(((SortKeys.LongColumn) column).values);
+        } else if (column instanceof SortKeys.DoubleColumn) {
+            return ofDoubles(((SortKeys.DoubleColumn) column).values);
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Returns the keys of <code>int</code> values.
+     *
+     * @param values the values
+     * @return the keys
+     */
+    long[] ofInts(final int[] values) {
+        final long[] keys = new long[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            keys[i] = (values[i] ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+        }
+
+        return keys;
+    }
+
+
+    /**
+     * Returns the keys of <code>long</code> values.
+     *
+     * @param values the values
+     * @return the keys
+     */
+    long[] ofLongs(final long[] values) {
+        final long[] keys = new long[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            keys[i] = values[i] ^ Long.MIN_VALUE;
+        }
+
+        return keys;
+    }
+
+
+    /**
+     * Returns the keys of <code>double</code> values.
+     *
+     * @param values the values
+     * @return the keys
+     */
+    long[] ofDoubles(final double[] values) {
+        final long[] keys = new long[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            final long bits = Double.doubleToLongBits(values[i]);
+
+            keys[i] = bits ^ ((bits >> 63) | Long.MIN_VALUE);
+        }
+
+        return keys;
+    }
+
+
+    /**
+     * Determines if keys are in ascending unsigned order.
+     *
+     * @param keys   the keys
+     * @param strict <code>true</code> if no two consecutive keys may be equal
+     * @return <code>true</code> if the keys are in order
+     */
+    boolean isSorted(final long[] keys, final boolean strict) {
+        for (int i = 1; i < keys.length; i++) {
+            final int result = Long.compareUnsigned(keys[i - 1], keys[i]);
+
+            if (result > 0 || (strict && result == 0)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,63 @@
+package com.acidblue.beans;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Asks for a comparator of the annotated bean or record to be generated at
+ * compile time.
+ * <pre>
+ *      &#64;SortableBy({"lastName", "firstName"})
+ *      &#64;SortableBy("age")
+ *      public record PersonRecord(String firstName, String lastName, int age) {}
+ * </pre>
+ * <p/>
+ * With the <code>comparator-factory-processor</code> annotation processor on
+ * the processor path, the compiler generates a {@link ComparatorProvider}
+ * named after the class with a <code>_SortableBy</code> suffix, in the same
+ * package, calling the getters directly. From then on
+ * {@link ComparatorFactory#create(Class, String, String...)} returns that
+ * comparator for these exact properties, without reflection. Properties the
+ * processor cannot resolve to a public getter or record accessor are
+ * compile errors.
+ * <p/>
+ * Without the processor the annotation has no effect, and comparators are
+ * generated at run time as before.
+ *
+ * @see ComparatorProvider
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+@Repeatable(SortableBy.List.class)
+public @interface SortableBy {
+
+    /**
+     * The properties to compare, most significant first. Nested properties may be given as dotted paths such as
+     * <code>address.city</code>.
+     *
+     * @return the property names
+     */
+    String[] value();
+
+
+    /**
+     * Holds several {@link SortableBy} annotations of the same class.
+     */
+    @Documented
+    @Retention(RetentionPolicy.CLASS)
+    @Target(ElementType.TYPE)
+    @interface List {
+
+        /**
+         * The annotations.
+         *
+         * @return the annotations
+         */
+        SortableBy[] value();
+    }
+}
@@ -0,0 +1,487 @@
+package com.acidblue.beans;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A list of beans kept sorted by their properties as the beans change.
+ * <p/>
+ * The view registers itself as a {@link PropertyChangeListener} of every bean
+ * added to it, through the bean's <code>addPropertyChangeListener</code>
+ * method (usually backed by {@link java.beans.PropertyChangeSupport}). When a
+ * sort property of a bean changes, only that bean is moved: its old position
+ * is found by binary search, its new one likewise, and the beans between the
+ * two are shifted by one. An update costs O(log n) comparisons plus the
+ * move, instead of the O(n log n) of sorting the whole list again.
+ * <pre>
+ *      SortedListView&lt;PersonBean&gt; view = SortedListView.create("lastName", "firstName");
+ *      view.addAll(people);
+ * <p/>
+ *      person.setLastName("Adams"); // fires a property change; person moves to its new place
+ * </pre>
+ * <p/>
+ * The sort properties of each bean are read when it is added and whenever it
+ * fires a change of one of them (or a change with a <code>null</code>
+ * property name), and kept with the bean. Beans comparing equal are kept in
+ * the order they were added. Changes that do not fire an event, including
+ * changes of nested beans read through a property path, are not seen.
+ * <p/>
+ * The view can be read as any list. Beans are added with {@link #add(Object)}
+ * rather than at a given index, and each bean can only be added once; beans
+ * are found by identity. Removing a bean, or clearing the view, unregisters
+ * the view from it.
+ * <p/>
+ * Like {@link java.util.ArrayList} the view is not thread safe. Beans should
+ * fire their events on the thread using the view, for example the event
+ * dispatch thread of a user interface.
+ *
+ * @param <E> the bean type
+ * @see SortProperty
+ */
+public class SortedListView<E> extends AbstractList<E> {
+
+    /**
+     * Stores, per bean class, its <code>addPropertyChangeListener</code> and
+     * <code>removePropertyChangeListener</code> methods, or <code>null</code>
+     * if it has none.
+     */
+    private static final ClassValue<Method[]> LISTENER_METHODS = new ClassValue<Method[]>() {
+        @Override
+        protected Method[] computeValue(final Class<?> type) {
+            try {
+                return new Method[]{
+                        type.getMethod("addPropertyChangeListener", PropertyChangeListener.class),
+                        type.getMethod("removePropertyChangeListener", PropertyChangeListener.class)
+                };
+            }
+            catch (NoSuchMethodException exception) {
+                return null;
+            }
+        }
+    };
+
+
+    /**
+     * The properties to sort by, most significant first.
+     */
+    private final SortProperty[] properties;
+
+    /**
+     * The beans with their sort properties, in sorted order; only the first {@link #size} are used.
+     */
+    private Entry<E>[] entries;
+
+    /**
+     * The number of beans in the view.
+     */
+    private int size;
+
+    /**
+     * The entry of every bean in the view.
+     */
+    private final Map<E, Entry<E>> index = new IdentityHashMap<>();
+
+    /**
+     * The sequence number of the next bean added.
+     */
+    private long sequence;
+
+    /**
+     * Moves beans whose sort properties change.
+     */
+    private final PropertyChangeListener listener = this::propertyChange;
+
+
+    /**
+     * Creates an empty view sorted by the given properties.
+     *
+     * @param first the most significant property
+     * @param rest  any other properties (order is preserved)
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public SortedListView(final SortProperty first, final SortProperty... rest) {
+
+        if (first == null) {
+            throw new NullPointerException("first was null");
+        }
+
+        this.properties = new SortProperty[rest.length + 1];
+        this.properties[0] = first;
+
+        for (int i = 0; i < rest.length; i++) {
+            if (rest[i] == null) {
+                throw new NullPointerException("rest contained null");
+            }
+
+            this.properties[i + 1] = rest[i];
+        }
+
+        this.entries = new Entry[16];
+    }
+
+
+    /**
+     * Creates an empty view sorted by the given properties, all in ascending order.
+     *
+     * @param first the most significant property
+     * @param rest  any other properties (order is preserved)
+     * @param <E>   the bean type
+     * @return a new view
+     */
+    public static <E> SortedListView<E> create(final String first, final String... rest) {
+
+        final SortProperty[] others = new SortProperty[rest.length];
+
+        for (int i = 0; i < rest.length; i++) {
+            others[i] = SortProperty.ascending(rest[i]);
+        }
+
+        return new SortedListView<E>(SortProperty.ascending(first), others);
+    }
+
+
+    @Override
+    public E get(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        return entries[index].element;
+    }
+
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Adds a bean at its sorted position and starts listening to its property changes.
+     *
+     * @param element the bean
+     * @return <code>false</code> if the bean is already in the view
+     * @throws IllegalArgumentException if a sort property cannot be read, or the bean has no
+     *                                  <code>addPropertyChangeListener</code> method
+     */
+    @Override
+    public boolean add(final E element) {
+        if (element == null) {
+            throw new NullPointerException("element was null");
+        }
+
+        if (index.containsKey(element)) {
+            return false;
+        }
+
+        final Entry<E> entry = new Entry<E>(element, read(element), sequence++);
+
+        listen(element, 0);
+
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size << 1);
+        }
+
+        final int position = insertionPoint(entry, 0, size);
+        System.arraycopy(entries, position, entries, position + 1, size - position);
+        entries[position] = entry;
+        size++;
+
+        index.put(element, entry);
+        modCount++;
+
+        return true;
+    }
+
+
+    /**
+     * Removes the bean at <em>index</em> and stops listening to it.
+     *
+     * @param index the index of the bean
+     * @return the bean removed
+     */
+    @Override
+    public E remove(final int index) {
+        final E element = get(index);
+
+        listen(element, 1);
+
+        System.arraycopy(entries, index + 1, entries, index, size - index - 1);
+        entries[--size] = null;
+
+        this.index.remove(element);
+        modCount++;
+
+        return element;
+    }
+
+
+    /**
+     * Returns the index of a bean, found by identity.
+     *
+     * @param o the bean
+     * @return the index, or <code>-1</code> if the bean is not in the view
+     */
+    @Override
+    public int indexOf(final Object o) {
+        final Entry<E> entry = index.get(o);
+
+        return entry == null ? -1 : find(entry);
+    }
+
+
+    @Override
+    public int lastIndexOf(final Object o) {
+        return indexOf(o);
+    }
+
+
+    @Override
+    public boolean contains(final Object o) {
+        return index.containsKey(o);
+    }
+
+
+    /**
+     * Removes a bean, found by identity, and stops listening to it.
+     *
+     * @param o the bean
+     * @return <code>true</code> if the bean was in the view
+     */
+    @Override
+    public boolean remove(final Object o) {
+        final int i = indexOf(o);
+
+        if (i < 0) {
+            return false;
+        }
+
+        remove(i);
+        return true;
+    }
+
+
+    /**
+     * Removes all beans and stops listening to them.
+     */
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            listen(entries[i].element, 1);
+            entries[i] = null;
+        }
+
+        size = 0;
+        index.clear();
+        modCount++;
+    }
+
+
+    /**
+     * Moves a bean if one of its sort properties changed.
+     *
+     * @param event the property change
+     */
+    private void propertyChange(final PropertyChangeEvent event) {
+        final Entry<E> entry = index.get(event.getSource());
+
+        if (entry == null || !affectsOrder(event.getPropertyName())) {
+            return;
+        }
+
+        final int from = find(entry);
+
+        entry.keys = read(entry.element);
+
+        if (from > 0 && compare(entry, entries[from - 1]) < 0) {
+            // moves towards the start
+            final int to = insertionPoint(entry, 0, from - 1);
+            System.arraycopy(entries, to, entries, to + 1, from - to);
+            entries[to] = entry;
+            modCount++;
+        } else if (from < size - 1 && compare(entry, entries[from + 1]) > 0) {
+            // moves towards the end
+            final int to = insertionPoint(entry, from + 2, size) - 1;
+            System.arraycopy(entries, from + 1, entries, from, to - from);
+            entries[to] = entry;
+            modCount++;
+        }
+    }
+
+
+    /**
+     * Determines if a change of property <em>name</em> may change the order of a bean.
+     *
+     * @param name the name of the changed property, or <code>null</code> if unknown
+     * @return <code>true</code> if the bean must be repositioned
+     */
+    private boolean affectsOrder(final String name) {
+        if (name == null) {
+            return true;
+        }
+
+        for (final SortProperty property : properties) {
+            final String path = property.getName();
+
+            if (path.startsWith(name) && (path.length() == name.length() || path.charAt(name.length()) == '.')) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Reads the sort properties of a bean.
+     *
+     * @param element the bean
+     * @return the values of the properties
+     */
+    private Object[] read(final E element) {
+        final Object[] keys = new Object[properties.length];
+
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = BeanPropertyUtil.getProperty(properties[i].getName(), element);
+        }
+
+        return keys;
+    }
+
+
+    /**
+     * Returns the position of an entry in the view.
+     *
+     * @param entry the entry, which must be in the view
+     * @return its index
+     */
+    private int find(final Entry<E> entry) {
+        int low = 0;
+        int high = size - 1;
+
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int result = compare(entries[middle], entry);
+
+            if (result < 0) {
+                low = middle + 1;
+            } else if (result > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        throw new IllegalStateException("Entry not found: " + entry.element);
+    }
+
+
+    /**
+     * Returns the index, within <em>from</em> (inclusive) and <em>to</em> (exclusive), of the first entry greater
+     * than <em>entry</em>.
+     *
+     * @param entry the entry to place
+     * @param from  the start of the range
+     * @param to    the end of the range
+     * @return the insertion point
+     */
+    private int insertionPoint(final Entry<E> entry, final int from, final int to) {
+        int low = from;
+        int high = to;
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (compare(entries[middle], entry) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+
+    /**
+     * Compares two entries by their sort properties, then by when they were added.
+     *
+     * @param e1 the entry to compare
+     * @param e2 the entry to compare to
+     * @return the result of the comparison; only zero if both are the same entry
+     */
+    private int compare(final Entry<E> e1, final Entry<E> e2) {
+        for (int i = 0; i < properties.length; i++) {
+            final int result = SortPropertyComparator.compareValues(properties[i], e1.keys[i], e2.keys[i]);
+
+            if (result != 0) {
+                return result;
+            }
+        }
+
+        return Long.compare(e1.sequence, e2.sequence);
+    }
+
+
+    /**
+     * Adds or removes the listener of this view to a bean.
+     *
+     * @param element the bean
+     * @param method  <code>0</code> to add the listener, <code>1</code> to remove it
+     * @throws IllegalArgumentException if the bean has no such method or it cannot be called
+     */
+    private void listen(final E element, final int method) {
+        final Method[] methods = LISTENER_METHODS.get(element.getClass());
+
+        if (methods == null) {
+            throw new IllegalArgumentException(String.format("%s does not support property change listeners",
+                    element.getClass().getName()));
+        }
+
+        try {
+            methods[method].invoke(element, listener);
+        }
+        catch (IllegalAccessException exception) {
+            throw new IllegalArgumentException(String.format("Cannot access %s", methods[method]), exception);
+        }
+        catch (InvocationTargetException exception) {
+            throw new IllegalArgumentException(String.format("Problem calling %s: %s", methods[method],
+                    exception.getCause().getMessage()), exception.getCause());
+        }
+    }
+
+
+    /**
+     * A bean together with its sort properties.
+     */
+    private static final class Entry<E> {
+
+        /**
+         * The bean.
+         */
+        final E element;
+
+        /**
+         * The values of the sort properties, as last read.
+         */
+        Object[] keys;
+
+        /**
+         * When the bean was added, to order beans with equal properties.
+         */
+        final long sequence;
+
+
+        Entry(final E element, final Object[] keys, final long sequence) {
+            this.element = element;
+            this.keys = keys;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.acidblue.beans;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.Comparator;
+
+/**
+ * Template for the comparators generated by {@link ComparatorGenerator}.
+ * <p/>
+ * This class is never loaded on its own. Its bytes are used to define a new
+ * hidden class for each bean class and property list, with the composed
+ * comparison {@link MethodHandle} passed as class data. As the handle is held
+ * in a <code>static final</code> field of a hidden class, the JIT treats it as
+ * a constant and inlines the whole comparison, getters included, into
+ * {@link #compare(Object, Object)}.
+ *
+ * @see ComparatorGenerator
+ */
+final class SpecializedComparator implements Comparator<Object> {
+
+    /**
+     * The comparison, of type <code>(Object, Object)int</code>.
+     */
+    private static final MethodHandle COMPARE = classData();
+
+
+    /**
+     * Compares the two beans with the generated comparison.
+     *
+     * @param o1 the bean to compare
+     * @param o2 the bean to compare to
+     * @return the result of the comparison
+     */
+    @Override
+    public int compare(final Object o1, final Object o2) {
+        try {
+            return (int) COMPARE.invokeExact(o1, o2);
+        }
+        catch (RuntimeException | Error exception) {
+            throw exception;
+        }
+        catch (Throwable throwable) {
+            throw new IllegalArgumentException(throwable.getMessage(), throwable);
+        }
+    }
+
+
+    /**
+     * Reads the comparison handle this hidden class was defined with.
+     *
+     * @return the comparison handle
+     */
+    private static MethodHandle classData() {
+        try {
+            return MethodHandles.classData(MethodHandles.lookup(), ConstantDescs.DEFAULT_NAME, MethodHandle.class);
+        }
+        catch (IllegalAccessException exception) {
+            throw new ExceptionInInitializerError(exception);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.acidblue.beans;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Picks the way to sort a list from a few cheap measurements of it.
+ * <p/>
+ * Before anything is sorted the selector looks at:
+ * <ul>
+ * <li>the number of elements;</li>
+ * <li>how sorted the elements already are, by comparing up to
+ * {@link #PAIR_SAMPLE} pairs of neighbours spread over the list. Only when
+ * none of them is out of order is the whole list checked, so that a sorted
+ * list is left as it is after one pass;</li>
+ * <li>the cost of the getters, by timing the reads of every property from up
+ * to {@link #GETTER_SAMPLE} elements;</li>
+ * <li>the type of the first property of the first element: primitive,
+ * <code>String</code> or any other.</li>
+ * </ul>
+ * Cheap getters favour comparing, since reading them on every comparison
+ * costs little, and lists made of a few long runs favour the merge sort of
+ * {@link List#sort}, which merges the runs in close to linear time. Otherwise
+ * the properties are read once per element and the keys sorted, with a radix
+ * sort when the first key allows it, or in parallel for long lists.
+ * <p/>
+ * The list must allow access by index in constant time; lists that do not are
+ * copied by the caller.
+ *
+ * @see SortUtil#adaptiveSort(List, String, String...)
+ */
+final class StrategySelector {
+
+    /**
+     * The number of pairs of neighbours compared to estimate how sorted a list is.
+     */
+    static final int PAIR_SAMPLE = 64;
+
+    /**
+     * The number of elements whose getters are timed.
+     */
+    static final int GETTER_SAMPLE = 16;
+
+    /**
+     * The number of times the sampled getters are timed; the fastest time is kept.
+     */
+    static final int TIMING_ROUNDS = 4;
+
+    /**
+     * Getters taking at most this many nanoseconds on average are cheap enough to call on every comparison.
+     */
+    static final long CHEAP_GETTER_NANOS = 500;
+
+    /**
+     * Lists shorter than this are sorted by comparing when their getters are cheap.
+     */
+    static final int COMPARATOR_THRESHOLD = 64;
+
+    /**
+     * Lists shorter than this are not radix sorted by a <code>String</code> key.
+     */
+    static final int STRING_RADIX_THRESHOLD = 256;
+
+    /**
+     * Lists shorter than this are not radix sorted by a primitive key, as by {@link PrimitiveRadixSorter}.
+     */
+    static final int PRIMITIVE_RADIX_THRESHOLD = 1 << 10;
+
+    /**
+     * The number of non-<code>null</code> values read while timing the getters. Writing it keeps the JIT compiler
+     * from removing the timed reads as dead code, while a <code>null</code> check adds next to nothing to the time
+     * measured.
+     */
+    private static volatile int sink;
+
+
+    /**
+     * Utility class; cannot be instantiated.
+     */
+    private StrategySelector() {
+    }
+
+
+    /**
+     * Picks the way to sort <em>elements</em>.
+     *
+     * @param elements    the elements to sort, with access by index in constant time
+     * @param comparator  the comparator for <em>properties</em>
+     * @param properties  the properties to sort by, most significant first
+     * @param parallelism the number of threads a parallel sort would use
+     * @return the strategy picked
+     * @throws IllegalArgumentException if a property cannot be read from an element
+     */
+    static <E> SortStrategy select(final List<E> elements, final Comparator<? super E> comparator,
+                                   final String[] properties, final int parallelism) {
+
+        final int size = elements.size();
+
+        if (size < 2) {
+            return SortStrategy.ALREADY_SORTED;
+        }
+
+        final int descents = descents(elements, comparator);
+
+        if (descents == 0 && (size <= PAIR_SAMPLE + 1 || isSorted(elements, comparator))) {
+            return SortStrategy.ALREADY_SORTED;
+        }
+
+        final boolean cheap = getterNanos(elements, properties) <= CHEAP_GETTER_NANOS;
+
+        // at most one sampled pair out of order: the list is a few long runs
+        if (cheap && (size < COMPARATOR_THRESHOLD || descents <= 1)) {
+            return SortStrategy.COMPARATOR;
+        }
+
+        final PropertyAccessor accessor = BeanPropertyUtil.getAccessor(properties[0], elements.get(0));
+
+        if (accessor.getKind() != PropertyAccessor.Kind.OBJECT && size >= PRIMITIVE_RADIX_THRESHOLD) {
+            return SortStrategy.PRIMITIVE_SORT;
+        }
+
+        if (size >= SortUtil.DEFAULT_PARALLEL_THRESHOLD && parallelism > 1) {
+            return SortStrategy.PARALLEL_SORT;
+        }
+
+        if (accessor.getType() == String.class && size >= STRING_RADIX_THRESHOLD) {
+            return SortStrategy.RADIX_SORT;
+        }
+
+        return SortStrategy.KEY_SORT;
+    }
+
+
+    /**
+     * Counts the pairs of neighbours out of order among up to {@link #PAIR_SAMPLE} pairs spread evenly over the
+     * elements. Every pair is compared if there are no more than that.
+     *
+     * @param elements   the elements
+     * @param comparator the comparator to compare them with
+     * @return the number of sampled pairs out of order
+     */
+    private static <E> int descents(final List<E> elements, final Comparator<? super E> comparator) {
+        final int pairs = elements.size() - 1;
+        final int sampled = Math.min(pairs, PAIR_SAMPLE);
+        int descents = 0;
+
+        for (int k = 0; k < sampled; k++) {
+            final int i = (int) ((long) k * pairs / sampled);
+
+            if (comparator.compare(elements.get(i), elements.get(i + 1)) > 0) {
+                descents++;
+            }
+        }
+
+        return descents;
+    }
+
+
+    /**
+     * Determines if the elements are in order, stopping at the first pair out of order.
+     *
+     * @param elements   the elements
+     * @param comparator the comparator to compare them with
+     * @return <code>true</code> if no element is greater than the next
+     */
+    private static <E> boolean isSorted(final List<E> elements, final Comparator<? super E> comparator) {
+        for (int i = elements.size() - 1; i > 0; i--) {
+            if (comparator.compare(elements.get(i - 1), elements.get(i)) > 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Times reading every property from up to {@link #GETTER_SAMPLE} elements spread evenly over the list. The
+     * accessors are resolved before timing, and the fastest of {@link #TIMING_ROUNDS} rounds is kept, so that
+     * neither resolving them nor the first, interpreted calls count for much.
+     *
+     * @param elements   the elements
+     * @param properties the properties to read
+     * @return the average time of one read, in nanoseconds
+     */
+    private static <E> long getterNanos(final List<E> elements, final String[] properties) {
+        final int sampled = Math.min(elements.size(), GETTER_SAMPLE);
+        final Object[] beans = new Object[sampled];
+        final PropertyAccessor[] accessors = new PropertyAccessor[sampled * properties.length];
+
+        for (int k = 0; k < sampled; k++) {
+            beans[k] = elements.get((int) ((long) k * elements.size() / sampled));
+
+            for (int p = 0; p < properties.length; p++) {
+                accessors[k * properties.length + p] = BeanPropertyUtil.getAccessor(properties[p], beans[k]);
+            }
+        }
+
+        long fastest = Long.MAX_VALUE;
+        int present = 0;
+
+        for (int round = 0; round < TIMING_ROUNDS; round++) {
+            final long start = System.nanoTime();
+
+            for (int a = 0; a < accessors.length; a++) {
+                try {
+                    present += accessors[a].get(beans[a / properties.length]) == null ? 0 : 1;
+                }
+                catch (RuntimeException exception) {
+                    throw new IllegalArgumentException(String.format("Problem accessing property '%s': %s",
+                            accessors[a].getName(), exception.getMessage()), exception);
+                }
+            }
+
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+
+        sink = present;
+        return fastest / accessors.length;
+    }
+}
@@ -0,0 +1,427 @@
+package com.acidblue.beans;
+
+import java.util.Arrays;
+
+/**
+ * Sorts a permutation of elements by their keys with a most significant digit
+ * radix sort over <code>String</code> key columns.
+ * <p/>
+ * A range of elements is distributed into buckets by the character of the
+ * current column at the current position, with a stable counting sort, and
+ * each bucket is then sorted from the next position on. Strings ending at the
+ * current position form the first bucket and go on to the next column. A
+ * character is one digit when all characters at that position are below 256,
+ * which holds for most text; otherwise its high byte and then its low byte
+ * are two digits, so that there are never more than 257 buckets. Characters
+ * are compared as UTF-16 code units, exactly like {@link String#compareTo}.
+ * <p/>
+ * Each character is read about once per element, however long the prefixes
+ * the strings share, rather than once per comparison. Ranges of at most
+ * {@link #INSERTION_THRESHOLD} elements are insertion sorted from the current
+ * position. Columns not holding only non <code>null</code> strings, and any
+ * column after them, are sorted by {@link IndexSorter}.
+ * <p/>
+ * Pending ranges are kept on an explicit stack, so long shared prefixes need
+ * no deep recursion. The sort is stable.
+ *
+ * @see SortUtil#radixSort(java.util.List, String, String...)
+ */
+final class StringRadixSorter {
+
+    /**
+     * Ranges at most this long are insertion sorted.
+     */
+    private static final int INSERTION_THRESHOLD = 32;
+
+    /**
+     * The number of buckets: one for the strings ending at the position, then one per digit.
+     */
+    private static final int BUCKETS = 257;
+
+    /**
+     * The entries of a pending range on the stack: from, to, column, position and whether only the low byte of the
+     * character at the position is left to sort by.
+     */
+    private static final int FRAME = 5;
+
+
+    /**
+     * The keys of the elements.
+     */
+    private final SortKeys keys;
+
+    /**
+     * The values of each column, or <code>null</code> if the column is not all strings; read on first use.
+     */
+    private final String[][] strings;
+
+    /**
+     * Whether each column of {@link #strings} has been read.
+     */
+    private final boolean[] read;
+
+    /**
+     * The keys from each column on, for comparing ranges that tie on the columns before; created on first use.
+     */
+    private final SortKeys[] tails;
+
+    /**
+     * The indexes of the elements, being sorted.
+     */
+    private final int[] order;
+
+    /**
+     * Scratch space of the length of {@link #order}.
+     */
+    private final int[] work;
+
+    /**
+     * The digit of each element of the range being distributed.
+     */
+    private final int[] digits;
+
+    /**
+     * The start of each bucket of the range being distributed.
+     */
+    private final int[] starts = new int[BUCKETS + 1];
+
+    /**
+     * The next free position of each bucket while distributing.
+     */
+    private final int[] next = new int[BUCKETS];
+
+    /**
+     * The pending ranges.
+     */
+    private int[] stack = new int[FRAME * 16];
+
+    /**
+     * The number of entries in {@link #stack}.
+     */
+    private int depth;
+
+
+    /**
+     * Creates a new sorter.
+     *
+     * @param keys the keys of the elements
+     * @param size the number of elements
+     */
+    private StringRadixSorter(final SortKeys keys, final int size) {
+        this.keys = keys;
+        this.strings = new String[keys.width()][];
+        this.read = new boolean[keys.width()];
+        this.tails = new SortKeys[keys.width() + 1];
+        this.order = new int[size];
+        this.work = new int[size];
+        this.digits = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+    }
+
+
+    /**
+     * Returns the indexes of <em>size</em> elements in the order of their keys. Elements with equal keys keep
+     * their relative order.
+     *
+     * @param keys the keys of the elements
+     * @param size the number of elements
+     * @return the indexes of the elements, in sorted order
+     */
+    static int[] sort(final SortKeys keys, final int size) {
+        final StringRadixSorter sorter = new StringRadixSorter(keys, size);
+
+        sorter.push(0, size, 0, 0, 0);
+
+        while (sorter.depth > 0) {
+            sorter.depth -= FRAME;
+
+            final int[] frame = sorter.stack;
+            final int top = sorter.depth;
+
+            sorter.sort(frame[top], frame[top + 1], frame[top + 2], frame[top + 3], frame[top + 4] != 0);
+        }
+
+        return sorter.order;
+    }
+
+
+    /**
+     * Sorts <code>order[from, to)</code>, whose elements tie on the columns before <em>column</em> and on the
+     * characters of <em>column</em> before <em>position</em>. Buckets that still need sorting are pushed.
+     *
+     * @param from     the first position of the range, inclusive
+     * @param to       the last position of the range, exclusive
+     * @param column   the column to sort by
+     * @param position the character position to sort by
+     * @param low      whether the elements also tie on the high byte of the character at <em>position</em>
+     */
+    private void sort(final int from, final int to, int column, int position, boolean low) {
+        while (to - from > 1 && column < strings.length) {
+            final String[] values = strings(column);
+
+            if (values == null) {
+                System.arraycopy(order, from, work, from, to - from);
+                IndexSorter.sort(tail(column), order, work, from, to);
+                return;
+            }
+
+            if (to - from <= INSERTION_THRESHOLD) {
+                insertionSort(from, to, column, position);
+                return;
+            }
+
+            final boolean wide;
+
+            if (low) {
+                lowDigits(values, from, to, position);
+                wide = false;
+            } else {
+                wide = digits(values, from, to, position);
+            }
+
+            final int single = distribute(from, to);
+
+            if (single < 0) {
+                pushBuckets(from, column, position, wide);
+                return;
+            }
+
+            // every element fell into one bucket, so the same range goes on to the next digit
+            if (single == 0) {
+                column++;
+                position = 0;
+                low = false;
+            } else if (wide) {
+                low = true;
+            } else {
+                position++;
+                low = false;
+            }
+        }
+    }
+
+
+    /**
+     * Computes the digit of each element of a range at a position: the character plus one, or the high byte of
+     * the character plus one if any character of the range is 256 or above, and zero for strings ending before the
+     * position.
+     *
+     * @param values   the strings of the column
+     * @param from     the first position of the range, inclusive
+     * @param to       the last position of the range, exclusive
+     * @param position the character position
+     * @return <code>true</code> if the digits are high bytes
+     */
+    private boolean digits(final String[] values, final int from, final int to, final int position) {
+        boolean wide = false;
+
+        for (int k = from; k < to; k++) {
+            final String value = values[order[k]];
+            final int digit = position < value.length() ? value.charAt(position) + 1 : 0;
+
+            digits[k] = digit;
+            wide |= digit > 256;
+        }
+
+        if (wide) {
+            for (int k = from; k < to; k++) {
+                digits[k] = digits[k] == 0 ? 0 : ((digits[k] - 1) >>> 8) + 1;
+            }
+        }
+
+        return wide;
+    }
+
+
+    /**
+     * Computes the digit of each element of a range from the low byte of the character at a position, which every
+     * string of the range has.
+     *
+     * @param values   the strings of the column
+     * @param from     the first position of the range, inclusive
+     * @param to       the last position of the range, exclusive
+     * @param position the character position
+     */
+    private void lowDigits(final String[] values, final int from, final int to, final int position) {
+        for (int k = from; k < to; k++) {
+            digits[k] = (values[order[k]].charAt(position) & 0xFF) + 1;
+        }
+    }
+
+
+    /**
+     * Stably distributes a range into buckets by the digits computed for it, leaving the start of each bucket in
+     * {@link #starts}.
+     *
+     * @param from the first position of the range, inclusive
+     * @param to   the last position of the range, exclusive
+     * @return the digit of all elements if they share one, in which case nothing is moved; otherwise -1
+     */
+    private int distribute(final int from, final int to) {
+        Arrays.fill(starts, 0);
+
+        for (int k = from; k < to; k++) {
+            starts[digits[k] + 1]++;
+        }
+
+        final int first = digits[from];
+
+        if (starts[first + 1] == to - from) {
+            return first;
+        }
+
+        starts[0] = from;
+
+        for (int b = 1; b <= BUCKETS; b++) {
+            starts[b] += starts[b - 1];
+        }
+
+        System.arraycopy(starts, 0, next, 0, BUCKETS);
+
+        for (int k = from; k < to; k++) {
+            work[next[digits[k]]++] = order[k];
+        }
+
+        System.arraycopy(work, from, order, from, to - from);
+
+        return -1;
+    }
+
+
+    /**
+     * Pushes the buckets left in {@link #starts} by {@link #distribute(int, int)} that hold more than one element.
+     *
+     * @param from     the start of the range distributed
+     * @param column   the column distributed by
+     * @param position the character position distributed by
+     * @param wide     whether the range was distributed by high bytes
+     */
+    private void pushBuckets(final int from, final int column, final int position, final boolean wide) {
+        if (starts[1] - starts[0] > 1) {
+            push(starts[0], starts[1], column + 1, 0, 0);
+        }
+
+        for (int b = 1; b < BUCKETS; b++) {
+            if (starts[b + 1] - starts[b] > 1) {
+                if (wide) {
+                    push(starts[b], starts[b + 1], column, position, 1);
+                } else {
+                    push(starts[b], starts[b + 1], column, position + 1, 0);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Insertion sorts <code>order[from, to)</code>, comparing the strings of <em>column</em> from
+     * <em>position</em> on, then the less significant columns.
+     *
+     * @param from     the first position of the range, inclusive
+     * @param to       the last position of the range, exclusive
+     * @param column   the column to compare
+     * @param position the first character position that may differ
+     */
+    private void insertionSort(final int from, final int to, final int column, final int position) {
+        final String[] values = strings[column];
+        final SortKeys rest = tail(column + 1);
+
+        for (int i = from + 1; i < to; i++) {
+            final int index = order[i];
+            int j = i - 1;
+
+            while (j >= from && compare(values, rest, order[j], index, position) > 0) {
+                order[j + 1] = order[j];
+                j--;
+            }
+
+            order[j + 1] = index;
+        }
+    }
+
+
+    /**
+     * Compares two elements tying on the characters of a column before <em>position</em>.
+     *
+     * @param values   the strings of the column
+     * @param rest     the keys of the less significant columns
+     * @param i        the index of the element to compare
+     * @param j        the index of the element to compare to
+     * @param position the first character position that may differ
+     * @return the result of the comparison
+     */
+    private static int compare(final String[] values, final SortKeys rest, final int i, final int j,
+                               final int position) {
+        final String s1 = values[i];
+        final String s2 = values[j];
+        final int end = Math.min(s1.length(), s2.length());
+
+        for (int k = position; k < end; k++) {
+            final int result = s1.charAt(k) - s2.charAt(k);
+
+            if (result != 0) {
+                return result;
+            }
+        }
+
+        final int result = s1.length() - s2.length();
+
+        return result != 0 ? result : rest.compare(i, j);
+    }
+
+
+    /**
+     * Returns the strings of a column.
+     *
+     * @param column the index of the column
+     * @return the strings, or <code>null</code> if the column is not all strings
+     */
+    private String[] strings(final int column) {
+        if (!read[column]) {
+            strings[column] = keys.strings(column);
+            read[column] = true;
+        }
+
+        return strings[column];
+    }
+
+
+    /**
+     * Returns the keys from a column on.
+     *
+     * @param column the index of the first column
+     * @return the keys
+     */
+    private SortKeys tail(final int column) {
+        if (tails[column] == null) {
+            tails[column] = keys.tail(column);
+        }
+
+        return tails[column];
+    }
+
+
+    /**
+     * Pushes a pending range.
+     *
+     * @param from     the first position of the range, inclusive
+     * @param to       the last position of the range, exclusive
+     * @param column   the column to sort by
+     * @param position the character position to sort by
+     * @param low      <code>1</code> if only the low byte of the character is left to sort by, else <code>0</code>
+     */
+    private void push(final int from, final int to, final int column, final int position, final int low) {
+        if (depth + FRAME > stack.length) {
+            stack = Arrays.copyOf(stack, stack.length << 1);
+        }
+
+        stack[depth++] = from;
+        stack[depth++] = to;
+        stack[depth++] = column;
+        stack[depth++] = position;
+        stack[depth++] = low;
+    }
+}
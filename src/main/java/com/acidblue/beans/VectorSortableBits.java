@@ -0,0 +1,137 @@
+package com.acidblue.beans;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Converts and checks keys with the incubating Vector API, a whole vector of
+ * values at a time.
+ * <p/>
+ * Only {@link SortableBits#create()} refers to this class, by name, and only
+ * once it has checked that the <code>jdk.incubator.vector</code> module is
+ * present, so the library runs unchanged where it is not. It is only compiled
+ * by the <code>vector</code> profile, keeping the incubator warning out of
+ * the default build.
+ */
+final class VectorSortableBits extends SortableBits {
+
+    /**
+     * The preferred species of <code>long</code> vectors on this platform.
+     */
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+    /**
+     * <code>double</code> vectors with as many lanes as {@link #LONGS}.
+     */
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * <code>int</code> vectors with as many lanes as {@link #LONGS}.
+     */
+    private static final VectorSpecies<Integer> INTS =
+            IntVector.SPECIES_PREFERRED.withShape(VectorShape.forBitSize(LONGS.vectorBitSize() / 2));
+
+    /**
+     * The bits {@link Double#doubleToLongBits(double)} returns for any NaN.
+     */
+    private static final long NAN = Double.doubleToLongBits(Double.NaN);
+
+
+    @Override
+    long[] ofInts(final int[] values) {
+        final long[] keys = new long[values.length];
+        final int bound = INTS.loopBound(values.length);
+        int i = 0;
+
+        for (; i < bound; i += INTS.length()) {
+            ((LongVector) IntVector.fromArray(INTS, values, i)
+                    .lanewise(VectorOperators.XOR, Integer.MIN_VALUE)
+                    .convertShape(VectorOperators.I2L, LONGS, 0))
+                    .lanewise(VectorOperators.AND, 0xFFFFFFFFL)
+                    .intoArray(keys, i);
+        }
+
+        for (; i < values.length; i++) {
+            keys[i] = (values[i] ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+        }
+
+        return keys;
+    }
+
+
+    @Override
+    long[] ofLongs(final long[] values) {
+        final long[] keys = new long[values.length];
+        final int bound = LONGS.loopBound(values.length);
+        int i = 0;
+
+        for (; i < bound; i += LONGS.length()) {
+            LongVector.fromArray(LONGS, values, i).lanewise(VectorOperators.XOR, Long.MIN_VALUE).intoArray(keys, i);
+        }
+
+        for (; i < values.length; i++) {
+            keys[i] = values[i] ^ Long.MIN_VALUE;
+        }
+
+        return keys;
+    }
+
+
+    @Override
+    long[] ofDoubles(final double[] values) {
+        final long[] keys = new long[values.length];
+        final int bound = DOUBLES.loopBound(values.length);
+        int i = 0;
+
+        for (; i < bound; i += DOUBLES.length()) {
+            final DoubleVector vector = DoubleVector.fromArray(DOUBLES, values, i);
+            final VectorMask<Long> nan = vector.test(VectorOperators.IS_NAN).cast(LONGS);
+            final LongVector bits = vector.viewAsIntegralLanes().blend(NAN, nan);
+
+            bits.lanewise(VectorOperators.XOR,
+                    bits.lanewise(VectorOperators.ASHR, 63).lanewise(VectorOperators.OR, Long.MIN_VALUE))
+                    .intoArray(keys, i);
+        }
+
+        for (; i < values.length; i++) {
+            final long bits = Double.doubleToLongBits(values[i]);
+
+            keys[i] = bits ^ ((bits >> 63) | Long.MIN_VALUE);
+        }
+
+        return keys;
+    }
+
+
+    @Override
+    boolean isSorted(final long[] keys, final boolean strict) {
+        final VectorOperators.Comparison outOfOrder = strict
+                ? VectorOperators.UNSIGNED_GE
+                : VectorOperators.UNSIGNED_GT;
+        // each vector is compared with the one starting a lane later
+        final int bound = LONGS.loopBound(Math.max(0, keys.length - 1));
+        int i = 0;
+
+        for (; i < bound; i += LONGS.length()) {
+            if (LongVector.fromArray(LONGS, keys, i).compare(outOfOrder, LongVector.fromArray(LONGS, keys, i + 1))
+                    .anyTrue()) {
+                return false;
+            }
+        }
+
+        for (i = Math.max(i, 1); i < keys.length; i++) {
+            final int result = Long.compareUnsigned(keys[i - 1], keys[i]);
+
+            if (result > 0 || (strict && result == 0)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
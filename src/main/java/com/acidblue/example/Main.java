@@ -2,12 +2,15 @@ package com.acidblue.example;
 
 import com.acidblue.beans.SortUtil;
 
+import java.lang.invoke.MethodHandles;
 import java.util.LinkedList;
 import java.util.List;
 
 public class Main {
 
   public static void main(String[] args) {
+    // the beans below are package-private, so grant access to read them
+    final MethodHandles.Lookup lookup = MethodHandles.lookup();
     final List<PersonBean> people = new LinkedList<>();
 
     people.add(new PersonBean("Benjamin", "Franklin"));
@@ -16,7 +19,7 @@ public class Main {
     people.add(new PersonBean("George", "Washington"));
 
     //sort by last name
-    SortUtil.sort(people, "lastName");
+    SortUtil.sort(people, lookup, "lastName");
     printPeople(people);
     // Output:
     // George, Bush
@@ -25,7 +28,7 @@ public class Main {
     // George, Washington
 
     //sort by first name
-    SortUtil.sort(people, "firstName");
+    SortUtil.sort(people, lookup, "firstName");
     printPeople(people);
     // Output:
     // Benjamin, Franklin
@@ -34,7 +37,7 @@ public class Main {
     // Ronald, Reagan
 
     //sort by last name and first name
-    SortUtil.sort(people, "lastName", "firstName");
+    SortUtil.sort(people, lookup, "lastName", "firstName");
     printPeople(people);
     // Output:
     // George, Bush
@@ -51,7 +54,7 @@ public class Main {
     records.add(new PersonRecord("George", "Washington"));
 
     //sort by last name
-    SortUtil.sort(records, "lastName");
+    SortUtil.sort(records, lookup, "lastName");
     printRecords(records);
     // Output:
     // George, Bush
@@ -60,7 +63,7 @@ public class Main {
     // George, Washington
 
     //sort by first name
-    SortUtil.sort(records, "firstName");
+    SortUtil.sort(records, lookup, "firstName");
     printRecords(records);
     // Output:
     // Benjamin, Franklin
@@ -69,7 +72,7 @@ public class Main {
     // Ronald, Reagan
 
     //sort by last name and first name
-    SortUtil.sort(records, "lastName", "firstName");
+    SortUtil.sort(records, lookup, "lastName", "firstName");
     printRecords(records);
     // Output:
     // George, Bush